@@ -1,4 +1,8 @@
+import groovy.json.JsonSlurper
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
 import java.security.MessageDigest
+import java.util.Base64
 
 plugins {
 	id("io.github.goooler.shadow") version "8.1.8"
@@ -36,6 +40,132 @@ val resource_pack_sha1 by lazy {
 	sha1_hash_string
 }
 
+// Compiles head_library.json into the binary format read by HeadMaterialLibrary,
+// which describes the layout. Keep both in sync.
+val compileHeadLibrary by tasks.registering {
+	val input = file("src/main/resources/head_library.json")
+	val output = layout.buildDirectory.file("generated/head_library/head_library.bin")
+	inputs.file(input)
+	outputs.file(output)
+
+	doLast {
+		val texture_prefix = "{\"textures\":{\"SKIN\":{\"url\":\"http://textures.minecraft.net/texture/"
+		val texture_suffix = "\"}}}"
+
+		// Returns the skin hash if the texture can be restored exactly from it
+		fun compact_texture(texture: String): String? {
+			val decoded = try {
+				String(Base64.getDecoder().decode(texture), Charsets.UTF_8)
+			} catch (e: IllegalArgumentException) {
+				return null
+			}
+			if (!decoded.startsWith(texture_prefix) || !decoded.endsWith(texture_suffix)) {
+				return null
+			}
+			val hash = decoded.substring(texture_prefix.length, decoded.length - texture_suffix.length)
+			if (hash.isEmpty() || hash.length > 255 || !hash.all { it in '0'..'9' || it in 'a'..'f' }) {
+				return null
+			}
+			if (Base64.getEncoder().encodeToString(decoded.toByteArray(Charsets.UTF_8)) != texture) {
+				return null
+			}
+			return hash
+		}
+
+		fun DataOutputStream.writeString(string: String) {
+			val bytes = string.toByteArray(Charsets.UTF_8)
+			if (bytes.size > 0xffff) {
+				throw GradleException("String too long for head library: " + string)
+			}
+			writeShort(bytes.size)
+			write(bytes)
+		}
+
+		@Suppress("UNCHECKED_CAST")
+		val json = JsonSlurper().parse(input, "UTF-8") as List<Map<String, Any>>
+		val heads = json.map { head ->
+			val tags = (head["tags"] as List<*>).map { it as String }.distinct()
+			if (tags.size > 0xff) {
+				throw GradleException("Too many tags for head " + head["id"])
+			}
+			mapOf(
+				"id" to head["id"] as String,
+				"name" to head["name"] as String,
+				"category" to head["category"] as String,
+				"tags" to tags,
+				"texture" to head["texture"] as String,
+			)
+		}
+
+		fun key_value(head: Map<String, Any>) = (head["category"] as String) + "_" + (head["id"] as String)
+		val order = heads.indices.sortedWith(compareBy(String.CASE_INSENSITIVE_ORDER) { "vane:" + key_value(heads[it]) })
+
+		val strings = heads.flatMap { listOf(it["category"] as String) + (it["tags"] as List<*>).map { t -> t as String } }
+			.distinct()
+			.sorted()
+		if (strings.size > 0xffff) {
+			throw GradleException("Too many distinct categories and tags in head library")
+		}
+		val string_index = strings.withIndex().associate { it.value to it.index }
+
+		// Records in key order
+		val records = ByteArrayOutputStream()
+		val offsets = IntArray(heads.size)
+		DataOutputStream(records).use { out ->
+			order.forEachIndexed { i, head_index ->
+				val head = heads[head_index]
+				offsets[i] = out.size()
+				out.writeString(head["id"] as String)
+				out.writeString(head["name"] as String)
+				out.writeShort(string_index.getValue(head["category"] as String))
+				val tags = head["tags"] as List<*>
+				out.writeByte(tags.size)
+				tags.forEach { out.writeShort(string_index.getValue(it as String)) }
+
+				val texture = head["texture"] as String
+				val hash = compact_texture(texture)
+				if (hash == null) {
+					out.writeByte(0)
+					out.writeString(texture)
+				} else {
+					out.writeByte(hash.length)
+					for (d in hash.indices step 2) {
+						val hi = Character.digit(hash[d], 16)
+						val lo = if (d + 1 < hash.length) Character.digit(hash[d + 1], 16) else 0
+						out.writeByte((hi shl 4) or lo)
+					}
+				}
+			}
+		}
+
+		// Later heads with the same texture replace earlier ones, as in the json
+		val position = IntArray(heads.size)
+		order.forEachIndexed { i, head_index -> position[head_index] = i }
+		val texture_owner = LinkedHashMap<String, Int>()
+		heads.forEachIndexed { head_index, head -> texture_owner[head["texture"] as String] = position[head_index] }
+
+		val key_index = order.mapIndexed { i, head_index -> key_value(heads[head_index]).hashCode() to i }
+			.sortedWith(compareBy({ it.first }, { it.second }))
+		val texture_index = texture_owner.map { (texture, i) -> texture.hashCode() to i }
+			.sortedWith(compareBy({ it.first }, { it.second }))
+
+		val file = output.get().asFile
+		file.parentFile.mkdirs()
+		DataOutputStream(file.outputStream().buffered()).use { out ->
+			out.writeInt(0x56484c42)
+			out.writeInt(1)
+			out.writeInt(strings.size)
+			strings.forEach { out.writeString(it) }
+			out.writeInt(heads.size)
+			offsets.forEach { out.writeInt(it) }
+			key_index.forEach { (hash, i) -> out.writeInt(hash); out.writeInt(i) }
+			out.writeInt(texture_index.size)
+			texture_index.forEach { (hash, i) -> out.writeInt(hash); out.writeInt(i) }
+			records.writeTo(out)
+		}
+	}
+}
+
 tasks {
 	shadowJar {
 		dependencies {
@@ -51,6 +181,9 @@ tasks {
 	}
 
 	processResources {
+		// Only the compiled head library is shipped
+		exclude("head_library.json")
+		from(compileHeadLibrary)
 		filesMatching("vane-core.properties") {
 			expand(project.properties + mapOf("resource_pack_sha1" to resource_pack_sha1))
 		}
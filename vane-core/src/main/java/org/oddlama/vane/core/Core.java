@@ -41,6 +41,7 @@ import org.oddlama.vane.core.misc.AuthMultiplexer;
 import org.oddlama.vane.core.misc.CommandHider;
 import org.oddlama.vane.core.misc.HeadLibrary;
 import org.oddlama.vane.core.misc.LootChestProtector;
+import org.oddlama.vane.core.misc.PlayerMovementDispatcher;
 import org.oddlama.vane.core.module.Module;
 import org.oddlama.vane.core.module.ModuleComponent;
 import org.oddlama.vane.core.resourcepack.ResourcePackDistributor;
@@ -100,6 +101,7 @@ public class Core extends Module<Core> {
     );
 
     public MenuManager menu_manager;
+    public PlayerMovementDispatcher movement_dispatcher;
 
     // core-config
     @ConfigBoolean(
@@ -137,6 +139,7 @@ public class Core extends Module<Core> {
         new org.oddlama.vane.core.commands.CustomItem(this);
         new org.oddlama.vane.core.commands.Enchant(this);
         menu_manager = new MenuManager(this);
+        movement_dispatcher = new PlayerMovementDispatcher(this);
         resource_pack_distributor = new ResourcePackDistributor(this);
         new CommandHider(this);
         model_data_registry = new CustomModelDataRegistry();
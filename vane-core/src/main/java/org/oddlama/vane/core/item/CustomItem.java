@@ -68,6 +68,13 @@ public class CustomItem<T extends Module<T>> extends Listener<T> implements org.
 		get_module().core.item_registry().register(this);
 	}
 
+	@Override
+	protected void on_config_change() {
+		super.on_config_change();
+		// Durability might have changed, so existing items need to be checked again
+		get_module().core.item_registry().invalidate_generation();
+	}
+
 	@Override
 	public NamespacedKey key() {
 		return key;
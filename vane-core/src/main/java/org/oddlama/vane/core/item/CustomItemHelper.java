@@ -1,13 +1,20 @@
 package org.oddlama.vane.core.item;
 
+import java.util.concurrent.ConcurrentHashMap;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.component.CustomData;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.NamespacedKey;
+import org.bukkit.craftbukkit.inventory.CraftItemStack;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.oddlama.vane.core.Core;
 import org.oddlama.vane.core.item.api.CustomItem;
+import org.oddlama.vane.util.Nms;
 import org.oddlama.vane.util.StorageUtil;
 
 public class CustomItemHelper {
@@ -21,6 +28,32 @@ public class CustomItemHelper {
     /** Used in persistent item storage to store a custom item version. */
     public static final NamespacedKey CUSTOM_ITEM_VERSION = StorageUtil.namespaced_key("vane", "custom_item_version");
 
+    // The nbt compound in which bukkit stores an item's persistent data container,
+    // and the names of our tags within it.
+    private static final String BUKKIT_VALUES_TAG = "PublicBukkitValues";
+    private static final String IDENTIFIER_TAG = CUSTOM_ITEM_IDENTIFIER.toString();
+    private static final String VERSION_TAG = CUSTOM_ITEM_VERSION.toString();
+
+    // Resolved custom item keys (key string → key), so identifying an item never parses a key twice.
+    private static final int MAX_INTERNED_KEYS = 4096;
+    private static final ConcurrentHashMap<String, NamespacedKey> interned_keys = new ConcurrentHashMap<>();
+
+    // Direct-mapped cache of recently seen custom data components and the tags read from them.
+    // Item components are immutable and shared between copies of a stack, so identity is a safe key.
+    private static final int TAG_CACHE_SIZE = 1024;
+    private static final TagCacheEntry[] tag_cache = new TagCacheEntry[TAG_CACHE_SIZE];
+
+    private static final class TagCacheEntry {
+
+        private final CustomData custom_data;
+        private final Pair<NamespacedKey, Integer> tags;
+
+        private TagCacheEntry(final CustomData custom_data, final Pair<NamespacedKey, Integer> tags) {
+            this.custom_data = custom_data;
+            this.tags = tags;
+        }
+    }
+
     /**
      * Internal function. Used as a dispatcher to update internal information and then call {@link
      * #updateItemStack(ItemStack)} to let the user update information. This prevents problems with
@@ -43,7 +76,19 @@ public class CustomItemHelper {
      * item, if any. Returns null if none was found or the given item stack was null.
      */
     public static Pair<NamespacedKey, Integer> customItemTagsFromItemStack(@Nullable final ItemStack itemStack) {
-        if (itemStack == null || !itemStack.hasItemMeta()) {
+        if (itemStack == null) {
+            return null;
+        }
+
+        // Fast path: Read the tags directly from the item's components without cloning its meta.
+        if (itemStack instanceof CraftItemStack) {
+            final var handle = Nms.item_handle(itemStack);
+            if (handle != null) {
+                return customItemTagsFromCustomData(handle.get(DataComponents.CUSTOM_DATA));
+            }
+        }
+
+        if (!itemStack.hasItemMeta()) {
             return null;
         }
 
@@ -54,11 +99,60 @@ public class CustomItemHelper {
             return null;
         }
 
+        return Pair.of(intern_key(key), version);
+    }
+
+    private static Pair<NamespacedKey, Integer> customItemTagsFromCustomData(@Nullable final CustomData custom_data) {
+        if (custom_data == null) {
+            return null;
+        }
+
+        final var slot = System.identityHashCode(custom_data) & (TAG_CACHE_SIZE - 1);
+        final var entry = tag_cache[slot];
+        if (entry != null && entry.custom_data == custom_data) {
+            return entry.tags;
+        }
+
+        final var tags = read_tags(custom_data);
+        tag_cache[slot] = new TagCacheEntry(custom_data, tags);
+        return tags;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Pair<NamespacedKey, Integer> read_tags(final CustomData custom_data) {
+        // getUnsafe() avoids copying the tag, we only ever read from it.
+        final CompoundTag root = custom_data.getUnsafe();
+        if (!root.contains(BUKKIT_VALUES_TAG, Tag.TAG_COMPOUND)) {
+            return null;
+        }
+
+        final var bukkit_values = root.getCompound(BUKKIT_VALUES_TAG);
+        if (
+            !bukkit_values.contains(IDENTIFIER_TAG, Tag.TAG_STRING) ||
+            !bukkit_values.contains(VERSION_TAG, Tag.TAG_INT)
+        ) {
+            return null;
+        }
+
+        return Pair.of(intern_key(bukkit_values.getString(IDENTIFIER_TAG)), bukkit_values.getInt(VERSION_TAG));
+    }
+
+    private static NamespacedKey intern_key(final String key) {
+        final var interned = interned_keys.get(key);
+        if (interned != null) {
+            return interned;
+        }
+
         final var parts = key.split(":");
         if (parts.length != 2) {
             throw new IllegalStateException("Invalid namespaced key '" + key + "'");
         }
-        return Pair.of(StorageUtil.namespaced_key(parts[0], parts[1]), version);
+
+        final var namespaced_key = StorageUtil.namespaced_key(parts[0], parts[1]);
+        if (interned_keys.size() < MAX_INTERNED_KEYS) {
+            interned_keys.putIfAbsent(key, namespaced_key);
+        }
+        return namespaced_key;
     }
 
     /** Creates a new item stack with a single item of this custom item. */
@@ -15,6 +15,9 @@ public class CustomItemRegistry implements org.oddlama.vane.core.item.api.Custom
     private final HashMap<NamespacedKey, CustomItem> items = new HashMap<>();
     private final HashSet<NamespacedKey> items_to_remove = new HashSet<>();
     private CustomModelDataRegistry model_data_registry;
+    // Incremented whenever registered items or their properties change,
+    // so that existing items need to be checked again.
+    private int generation = 0;
 
     public CustomItemRegistry() {
         this.model_data_registry = Core.instance().model_data_registry();
@@ -45,6 +48,16 @@ public class CustomItemRegistry implements org.oddlama.vane.core.item.api.Custom
         return get(key_and_version.getLeft());
     }
 
+    @Override
+    public @Nullable CustomItem getByCustomModelData(final int data) {
+        final var key = model_data_registry.get(data);
+        if (key == null) {
+            return null;
+        }
+
+        return get(key);
+    }
+
     @Override
     public void register(final CustomItem customItem) {
         model_data_registry.reserveSingle(customItem.key(), customItem.customModelData());
@@ -54,11 +67,14 @@ public class CustomItemRegistry implements org.oddlama.vane.core.item.api.Custom
             );
         }
         items.put(customItem.key(), customItem);
+        ++generation;
     }
 
     @Override
     public void removePermanently(final NamespacedKey key) {
-        items_to_remove.add(key);
+        if (items_to_remove.add(key)) {
+            ++generation;
+        }
     }
 
     @Override
@@ -66,6 +82,16 @@ public class CustomItemRegistry implements org.oddlama.vane.core.item.api.Custom
         return items_to_remove.contains(key);
     }
 
+    /** Returns the current generation, which changes whenever existing items may need conversion. */
+    public int generation() {
+        return generation;
+    }
+
+    /** Notifies the registry that a property of a registered item has changed. */
+    public void invalidate_generation() {
+        ++generation;
+    }
+
     @Override
     public CustomModelDataRegistry dataRegistry() {
         return model_data_registry;
@@ -1,21 +1,50 @@
 package org.oddlama.vane.core.item;
 
 import java.util.HashMap;
+import java.util.TreeMap;
 import org.bukkit.NamespacedKey;
 import org.jetbrains.annotations.Nullable;
 
 public class CustomModelDataRegistry implements org.oddlama.vane.core.item.api.CustomModelDataRegistry {
 
     private final HashMap<NamespacedKey, Range> reserved_ranges = new HashMap<>();
+    // All reserved ranges indexed by their first id. Reserved ranges never overlap,
+    // so the range containing an id is always the one with the greatest start <= id.
+    private final TreeMap<Integer, Reservation> reservations_by_start = new TreeMap<>();
+
+    private static record Reservation(NamespacedKey key, Range range) {}
+
+    private @Nullable Reservation reservation_containing(int data) {
+        final var entry = reservations_by_start.floorEntry(data);
+        if (entry == null || !entry.getValue().range().contains(data)) {
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    private @Nullable Reservation first_reservation_overlapping(Range range) {
+        // Either the range containing the start of the query overlaps,
+        // or the first range starting inside of the query.
+        final var containing = reservation_containing(range.from());
+        if (containing != null) {
+            return containing;
+        }
+
+        final var next = reservations_by_start.higherEntry(range.from());
+        if (next == null || next.getKey() >= range.to()) {
+            return null;
+        }
+        return next.getValue();
+    }
 
     @Override
     public boolean has(int data) {
-        return reserved_ranges.values().stream().anyMatch(r -> r.contains(data));
+        return reservation_containing(data) != null;
     }
 
     @Override
     public boolean hasAny(Range range) {
-        return reserved_ranges.values().stream().anyMatch(r -> r.overlaps(range));
+        return first_reservation_overlapping(range) != null;
     }
 
     @Override
@@ -25,24 +54,23 @@ public class CustomModelDataRegistry implements org.oddlama.vane.core.item.api.C
 
     @Override
     public @Nullable NamespacedKey get(int data) {
-        for (final var kv : reserved_ranges.entrySet()) {
-            if (kv.getValue().contains(data)) {
-                return kv.getKey();
-            }
-        }
-
-        return null;
+        final var reservation = reservation_containing(data);
+        return reservation == null ? null : reservation.key();
     }
 
     @Override
     public @Nullable NamespacedKey get(Range range) {
-        for (final var kv : reserved_ranges.entrySet()) {
-            if (kv.getValue().overlaps(range)) {
-                return kv.getKey();
-            }
-        }
+        final var reservation = first_reservation_overlapping(range);
+        return reservation == null ? null : reservation.key();
+    }
 
-        return null;
+    private void put(NamespacedKey resourceKey, Range range) {
+        // A key only ever owns a single range, so release any previous reservation
+        final var previous = reserved_ranges.put(resourceKey, range);
+        if (previous != null) {
+            reservations_by_start.remove(previous.from());
+        }
+        reservations_by_start.put(range.from(), new Reservation(resourceKey, range));
     }
 
     @Override
@@ -51,7 +79,7 @@ public class CustomModelDataRegistry implements org.oddlama.vane.core.item.api.C
         if (existing != null) {
             throw new IllegalArgumentException("Cannot reserve range " + range + ", already registered by " + existing);
         }
-        reserved_ranges.put(resourceKey, range);
+        put(resourceKey, range);
     }
 
     @Override
@@ -62,6 +90,6 @@ public class CustomModelDataRegistry implements org.oddlama.vane.core.item.api.C
                 "Cannot reserve customModelData " + data + ", already registered by " + existing
             );
         }
-        reserved_ranges.put(resourceKey, new Range(data, data + 1));
+        put(resourceKey, new Range(data, data + 1));
     }
 }
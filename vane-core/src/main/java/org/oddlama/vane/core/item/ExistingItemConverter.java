@@ -1,25 +1,132 @@
 package org.oddlama.vane.core.item;
 
+import static org.oddlama.vane.util.BlockUtil.XZ_FACES;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.UUID;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.block.Container;
+import org.bukkit.block.DoubleChest;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.BlockInventoryHolder;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
+import org.oddlama.vane.annotation.config.ConfigBoolean;
+import org.oddlama.vane.annotation.config.ConfigInt;
 import org.oddlama.vane.core.Core;
 import org.oddlama.vane.core.Listener;
 import org.oddlama.vane.core.item.api.CustomItem;
 import org.oddlama.vane.core.module.Context;
+import org.oddlama.vane.util.LongObjectMap;
 
 public class ExistingItemConverter extends Listener<Core> {
 
+    @ConfigBoolean(
+        def = false,
+        desc = "Convert items in all containers of loaded chunks in the background, instead of only converting an inventory when it is opened. Runs once after startup or whenever custom items change, and for each newly loaded chunk."
+    )
+    public boolean config_background_conversion;
+
+    @ConfigInt(
+        def = 2,
+        min = 1,
+        max = 25,
+        desc = "Maximum time in milliseconds per tick that may be spent on background conversion."
+    )
+    public int config_background_conversion_budget_ms;
+
+    // The item registry generation at which each block container was last processed.
+    // Stored as world_id → chunk_key → block_key → generation, so that all entries
+    // of a chunk can be dropped when it unloads.
+    private final HashMap<UUID, LongObjectMap<LongObjectMap<Integer>>> container_generations = new HashMap<>();
+    // The item registry generation at which each player inventory was last processed.
+    private final HashMap<UUID, Integer> player_generations = new HashMap<>();
+
+    // Loaded chunks that still need to be processed by the background conversion.
+    private final ArrayDeque<PendingChunk> background_queue = new ArrayDeque<>();
+    // The generation for which all loaded chunks have been queued.
+    private int background_generation = -1;
+    private BukkitTask background_task;
+
     public ExistingItemConverter(final Context<Core> context) {
         super(context.namespace("existing_item_converter"));
     }
 
+    private int current_generation() {
+        return get_module().item_registry().generation();
+    }
+
+    private static Location container_location(@NotNull Inventory inventory) {
+        // Only inventories of blocks can be identified by their location. Double chests
+        // report the center between both halves, which is consistent for both sides.
+        final var holder = inventory.getHolder(false);
+        if (!(holder instanceof BlockInventoryHolder) && !(holder instanceof DoubleChest)) {
+            return null;
+        }
+        return inventory.getLocation();
+    }
+
+    private LongObjectMap<Integer> chunk_generations(final Location location, boolean create) {
+        final var world_id = location.getWorld().getUID();
+        final var chunk_key = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        var chunks = container_generations.get(world_id);
+        if (chunks == null) {
+            if (!create) {
+                return null;
+            }
+            chunks = new LongObjectMap<>();
+            container_generations.put(world_id, chunks);
+        }
+        return create ? chunks.computeIfAbsent(chunk_key, k -> new LongObjectMap<>()) : chunks.get(chunk_key);
+    }
+
+    private static long block_key(final Location location) {
+        return Block.getBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    private boolean is_up_to_date(final Location location) {
+        final var generations = chunk_generations(location, false);
+        if (generations == null) {
+            return false;
+        }
+        final var generation = generations.get(block_key(location));
+        return generation != null && generation == current_generation();
+    }
+
+    private void mark_up_to_date(final Location location) {
+        chunk_generations(location, true).put(block_key(location), current_generation());
+    }
+
+    private void invalidate(final Location location) {
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        final var generations = chunk_generations(location, false);
+        if (generations != null) {
+            generations.remove(block_key(location));
+        }
+    }
+
     private CustomItem from_old_item(final ItemStack item_stack) {
         final var meta = item_stack.getItemMeta();
         if (meta == null || !meta.hasCustomModelData()) {
@@ -105,88 +212,288 @@ public class ExistingItemConverter extends Listener<Core> {
         return get_module().item_registry().get(NamespacedKey.fromString(new_item_key));
     }
 
+    /**
+     * Converts the item stack in the given slot if necessary. The slot is replaced by the
+     * converted stack, or set to null if the item is obsolete. Returns whether the slot changed.
+     */
+    private boolean convert_item(final ItemStack[] contents, final int i) {
+        final var is = contents[i];
+        if (is == null || !is.hasItemMeta()) {
+            return false;
+        }
+
+        final var custom_item = get_module().item_registry().get(is);
+        if (custom_item == null) {
+            // Determine if the item stack should be converted to a custom item from a legacy
+            // definition
+            final var convert_to_custom_item = from_old_item(is);
+            if (convert_to_custom_item == null) {
+                return false;
+            }
+
+            contents[i] = convert_to_custom_item.convertExistingStack(is);
+            contents[i].editMeta(meta -> meta.itemName(convert_to_custom_item.displayName()));
+            get_module().enchantment_manager.update_enchanted_item(contents[i]);
+            get_module().log.info("Converted legacy item to " + convert_to_custom_item.key());
+            return true;
+        }
+
+        // Remove obsolete custom items
+        if (get_module().item_registry().shouldRemove(custom_item.key())) {
+            contents[i] = null;
+            get_module().log.info("Removed obsolete item " + custom_item.key());
+            return true;
+        }
+
+        // Update custom items to a new version, or if another detectable property changed.
+        final var key_and_version = CustomItemHelper.customItemTagsFromItemStack(is);
+        final var meta = is.getItemMeta();
+        if (
+            meta.getCustomModelData() != custom_item.customModelData() ||
+            is.getType() != custom_item.baseMaterial() ||
+            key_and_version.getRight() != custom_item.version()
+        ) {
+            // Also includes durability max update.
+            contents[i] = custom_item.convertExistingStack(is);
+            get_module().log.info("Updated item " + custom_item.key());
+            return true;
+        }
+
+        // Update maximum durability on existing items if changed.
+        Damageable damageableMeta = (Damageable) contents[i].getItemMeta();
+        int max_damage = damageableMeta.hasMaxDamage()
+            ? damageableMeta.getMaxDamage()
+            : contents[i].getType().getMaxDurability();
+        int correct_max_damage = custom_item.durability() == 0
+            ? contents[i].getType().getMaxDurability()
+            : custom_item.durability();
+        if (
+            max_damage != correct_max_damage ||
+            meta.getPersistentDataContainer().has(DurabilityManager.ITEM_DURABILITY_DAMAGE)
+        ) {
+            get_module().log.info("Updated item durability " + custom_item.key());
+            DurabilityManager.update_damage(custom_item, contents[i]);
+            return true;
+        }
+
+        return false;
+    }
+
     private void process_inventory(@NotNull Inventory inventory) {
         final var contents = inventory.getContents();
         int changed = 0;
 
         for (int i = 0; i < contents.length; ++i) {
-            final var is = contents[i];
-            if (is == null || !is.hasItemMeta()) {
-                continue;
+            if (convert_item(contents, i)) {
+                ++changed;
             }
+        }
 
-            final var custom_item = get_module().item_registry().get(is);
-            if (custom_item == null) {
-                // Determine if the item stack should be converted to a custom item from a legacy
-                // definition
-                final var convert_to_custom_item = from_old_item(is);
-                if (convert_to_custom_item == null) {
-                    continue;
-                }
+        if (changed > 0) {
+            inventory.setContents(contents);
+        }
+    }
 
-                contents[i] = convert_to_custom_item.convertExistingStack(is);
-                contents[i].editMeta(meta -> meta.itemName(convert_to_custom_item.displayName()));
-                get_module().enchantment_manager.update_enchanted_item(contents[i]);
-                get_module().log.info("Converted legacy item to " + convert_to_custom_item.key());
-                ++changed;
-                continue;
-            }
+    private void process_container_inventory(@NotNull Inventory inventory) {
+        final var location = container_location(inventory);
+        if (location == null || location.getWorld() == null) {
+            process_inventory(inventory);
+            return;
+        }
 
-            // Remove obsolete custom items
-            if (get_module().item_registry().shouldRemove(custom_item.key())) {
-                contents[i] = null;
-                get_module().log.info("Removed obsolete item " + custom_item.key());
-                ++changed;
-                continue;
+        // Skip containers that were already processed since the last change of custom items
+        if (is_up_to_date(location)) {
+            return;
+        }
+
+        process_inventory(inventory);
+        mark_up_to_date(location);
+    }
+
+    private void process_background_conversion() {
+        if (!config_background_conversion) {
+            return;
+        }
+
+        // Queue all loaded chunks again whenever custom items have changed
+        final var generation = current_generation();
+        if (background_generation != generation) {
+            background_generation = generation;
+            background_queue.clear();
+            for (final var world : get_module().getServer().getWorlds()) {
+                for (final var chunk : world.getLoadedChunks()) {
+                    background_queue.add(new PendingChunk(world.getUID(), chunk.getX(), chunk.getZ()));
+                }
             }
+        }
 
-            // Update custom items to a new version, or if another detectable property changed.
-            final var key_and_version = CustomItemHelper.customItemTagsFromItemStack(is);
-            final var meta = is.getItemMeta();
-            if (
-                meta.getCustomModelData() != custom_item.customModelData() ||
-                is.getType() != custom_item.baseMaterial() ||
-                key_and_version.getRight() != custom_item.version()
-            ) {
-                // Also includes durability max update.
-                contents[i] = custom_item.convertExistingStack(is);
-                get_module().log.info("Updated item " + custom_item.key());
-                ++changed;
+        final var time_begin = System.nanoTime();
+        final var max_nanoseconds = config_background_conversion_budget_ms * 1000000l;
+        while (!background_queue.isEmpty() && System.nanoTime() - time_begin < max_nanoseconds) {
+            final var pending = background_queue.poll();
+            final var world = get_module().getServer().getWorld(pending.world_id);
+            if (world == null || !world.isChunkLoaded(pending.x, pending.z)) {
                 continue;
             }
 
-            // Update maximum durability on existing items if changed.
-            Damageable damageableMeta = (Damageable) contents[i].getItemMeta();
-            int max_damage = damageableMeta.hasMaxDamage()
-                ? damageableMeta.getMaxDamage()
-                : contents[i].getType().getMaxDurability();
-            int correct_max_damage = custom_item.durability() == 0
-                ? contents[i].getType().getMaxDurability()
-                : custom_item.durability();
-            if (
-                max_damage != correct_max_damage ||
-                meta.getPersistentDataContainer().has(DurabilityManager.ITEM_DURABILITY_DAMAGE)
-            ) {
-                get_module().log.info("Updated item durability " + custom_item.key());
-                DurabilityManager.update_damage(custom_item, contents[i]);
-                ++changed;
-                continue;
+            // Use live block states, so changes to the inventory apply directly
+            for (final var tile_entity : world.getChunkAt(pending.x, pending.z).getTileEntities(false)) {
+                if (tile_entity instanceof Container container) {
+                    process_container_inventory(container.getInventory());
+                }
             }
         }
+    }
 
-        if (changed > 0) {
-            inventory.setContents(contents);
-        }
+    @Override
+    protected void on_enable() {
+        super.on_enable();
+        background_generation = -1;
+        background_task = schedule_task_timer(this::process_background_conversion, 1l, 1l);
+    }
+
+    @Override
+    protected void on_disable() {
+        background_task.cancel();
+        background_queue.clear();
+        container_generations.clear();
+        player_generations.clear();
+        super.on_disable();
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void on_player_join(final PlayerJoinEvent event) {
+        final var player_id = event.getPlayer().getUniqueId();
+        final var generation = current_generation();
+        final var last_generation = player_generations.get(player_id);
+        if (last_generation != null && last_generation == generation) {
+            return;
+        }
+
         process_inventory(event.getPlayer().getInventory());
+        player_generations.put(player_id, generation);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void on_inventory_open(final InventoryOpenEvent event) {
         // Catches enderchests, and inventories by other plugins
-        process_inventory(event.getInventory());
+        process_container_inventory(event.getInventory());
+    }
+
+    // Items entering an inventory from outside may need conversion. They are converted
+    // in place, so the respective inventory stays up to date. An inventory is only processed
+    // again if an incoming stack needed conversion but couldn't be replaced.
+
+    private void invalidate_container(@NotNull final Inventory inventory) {
+        if (container_location(inventory) != null) {
+            invalidate(inventory.getLocation());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void on_inventory_move_item(final InventoryMoveItemEvent event) {
+        final var item = new ItemStack[] { event.getItem() };
+        if (!convert_item(item, 0)) {
+            return;
+        }
+
+        if (item[0] == null) {
+            // The moved item can't be removed here, so let the next open remove it.
+            invalidate_container(event.getDestination());
+        } else {
+            event.setItem(item[0]);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void on_inventory_pickup_item(final InventoryPickupItemEvent event) {
+        final var item = new ItemStack[] { event.getItem().getItemStack() };
+        if (!convert_item(item, 0)) {
+            return;
+        }
+
+        if (item[0] == null) {
+            invalidate_container(event.getInventory());
+        } else {
+            event.getItem().setItemStack(item[0]);
+        }
     }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void on_inventory_click(final InventoryClickEvent event) {
+        // Players may put unconverted items (e.g. picked up since joining) into the container.
+        // The click is applied after this event, so converting the involved stacks suffices.
+        final var items = new ItemStack[] { event.getCursor(), event.getCurrentItem() };
+        if (convert_item(items, 0)) {
+            event.getView().setCursor(items[0]);
+        }
+        if (convert_item(items, 1)) {
+            event.setCurrentItem(items[1]);
+        }
+
+        // Number keys swap the clicked slot with a hotbar slot
+        final var hotbar_button = event.getHotbarButton();
+        if (hotbar_button >= 0) {
+            final var player_inventory = event.getWhoClicked().getInventory();
+            final var hotbar = new ItemStack[] { player_inventory.getItem(hotbar_button) };
+            if (convert_item(hotbar, 0)) {
+                player_inventory.setItem(hotbar_button, hotbar[0]);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_inventory_drag(final InventoryDragEvent event) {
+        // The dragged stacks are already determined at this point and can't be replaced.
+        // Only process the container again if they need conversion.
+        final var dragged = new ItemStack[] { event.getOldCursor().clone() };
+        if (convert_item(dragged, 0)) {
+            invalidate_container(event.getInventory());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_entity_pickup_item(final EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            player_generations.remove(player.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_block_place(final BlockPlaceEvent event) {
+        // Placed containers (e.g. shulker boxes) may bring their own contents
+        final var block = event.getBlockPlaced();
+        invalidate(block.getLocation());
+
+        // A chest may be attached to an existing chest, whose double chest inventory
+        // is keyed by the location of either half.
+        final var type = block.getType();
+        if (type == Material.CHEST || type == Material.TRAPPED_CHEST) {
+            for (final var face : XZ_FACES) {
+                final var neighbor = block.getRelative(face);
+                if (neighbor.getType() == type) {
+                    invalidate(neighbor.getLocation());
+                }
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_chunk_load(final ChunkLoadEvent event) {
+        if (config_background_conversion && background_generation == current_generation()) {
+            final var chunk = event.getChunk();
+            background_queue.add(new PendingChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_chunk_unload(final ChunkUnloadEvent event) {
+        final var chunk = event.getChunk();
+        final var chunks = container_generations.get(chunk.getWorld().getUID());
+        if (chunks != null) {
+            chunks.remove(chunk.getChunkKey());
+        }
+    }
+
+    private static record PendingChunk(UUID world_id, int x, int z) {}
 }
@@ -31,6 +31,12 @@ public interface CustomItemRegistry {
     // removal filter filtering on the custom item id.
     public @Nullable CustomItem get(@Nullable ItemStack itemStack);
 
+    /**
+     * Retrieves the custom item that reserved the given custom model data. Returns null if the
+     * custom model data is unused or wasn't reserved by a registered custom item.
+     */
+    public @Nullable CustomItem getByCustomModelData(int data);
+
     /**
      * Registers a new custom item. Throws an IllegalArgumentException if an item with the same key
      * has already been registered.
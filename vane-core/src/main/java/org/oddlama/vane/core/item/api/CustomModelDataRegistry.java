@@ -27,7 +27,7 @@ public interface CustomModelDataRegistry {
         }
 
         public boolean overlaps(Range range) {
-            return !(to >= range.from || from >= range.to);
+            return !(to <= range.from || from >= range.to);
         }
     }
 
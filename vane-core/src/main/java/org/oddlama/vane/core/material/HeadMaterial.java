@@ -1,15 +1,12 @@
 package org.oddlama.vane.core.material;
 
 import static org.oddlama.vane.util.ItemUtil.skull_with_texture;
-import static org.oddlama.vane.util.StorageUtil.namespaced_key;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
-import org.json.JSONObject;
 
 public class HeadMaterial {
 
@@ -18,12 +15,14 @@ public class HeadMaterial {
     private String category;
     private Set<String> tags;
     private String base64_texture;
+    // Index in the head library, used to decode the texture on first access
+    private int library_index = -1;
 
     public HeadMaterial(
         final NamespacedKey key,
         final String name,
         final String category,
-        final List<String> tags,
+        final Collection<String> tags,
         final String base64_texture
     ) {
         this.key = key;
@@ -33,6 +32,17 @@ public class HeadMaterial {
         this.base64_texture = base64_texture;
     }
 
+    HeadMaterial(
+        final int library_index,
+        final NamespacedKey key,
+        final String name,
+        final String category,
+        final Collection<String> tags
+    ) {
+        this(key, name, category, tags, null);
+        this.library_index = library_index;
+    }
+
     public NamespacedKey key() {
         return key;
     }
@@ -50,26 +60,13 @@ public class HeadMaterial {
     }
 
     public String texture() {
+        if (base64_texture == null && library_index >= 0) {
+            base64_texture = HeadMaterialLibrary.texture(library_index);
+        }
         return base64_texture;
     }
 
     public ItemStack item() {
-        return skull_with_texture(name, base64_texture);
-    }
-
-    public static HeadMaterial from(final JSONObject json) {
-        final var id = json.getString("id");
-        final var name = json.getString("name");
-        final var category = json.getString("category");
-        final var texture = json.getString("texture");
-
-        final var tags = new ArrayList<String>();
-        final var tags_arr = json.getJSONArray("tags");
-        for (int i = 0; i < tags_arr.length(); ++i) {
-            tags.add(tags_arr.getString(i));
-        }
-
-        final var key = namespaced_key("vane", category + "_" + id);
-        return new HeadMaterial(key, name, category, tags, texture);
+        return skull_with_texture(name, texture());
     }
 }
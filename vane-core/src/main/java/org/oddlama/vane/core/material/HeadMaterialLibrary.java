@@ -1,51 +1,228 @@
 package org.oddlama.vane.core.material;
 
+import static org.oddlama.vane.util.StorageUtil.namespaced_key;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 import org.bukkit.NamespacedKey;
-import org.json.JSONArray;
 
+/**
+ * The head library, compiled at build time from head_library.json into a compact binary format by
+ * the compileHeadLibrary task of vane-core. The data is kept as a single byte array and heads are
+ * only decoded when accessed, so loading doesn't parse anything and the library doesn't keep tens
+ * of thousands of objects alive.
+ *
+ * <p>Layout (big-endian, strings are an unsigned short byte length followed by UTF-8):
+ *
+ * <pre>
+ * int magic, int version
+ * int string_count, string[string_count]       // dictionary of all categories and tags
+ * int head_count
+ * int[head_count] record_offsets               // relative to the start of the records
+ * (int hash, int head)[head_count]             // key index, sorted
+ * int texture_count
+ * (int hash, int head)[texture_count]          // texture index, sorted
+ * records: string id, string name, ushort category, ubyte tag_count, ushort[tag_count] tags, texture
+ * </pre>
+ *
+ * Heads are ordered by key. The hashes are {@link String#hashCode()} of the key's value and the
+ * texture. Textures that only reference a skin on textures.minecraft.net are stored as the hex
+ * digits of the skin hash (ubyte digit count, packed nibbles), all others as a ubyte 0 followed by
+ * the base64 string.
+ */
 public class HeadMaterialLibrary {
 
-    private static final Map<NamespacedKey, HeadMaterial> registry = new HashMap<>();
-    private static final Map<String, List<HeadMaterial>> categories = new HashMap<>();
-    private static final Map<String, List<HeadMaterial>> tags = new HashMap<>();
-    private static final Map<String, HeadMaterial> by_texture = new HashMap<>();
+    private static final int MAGIC = 0x56484c42; // "VHLB"
+    private static final int VERSION = 1;
+    private static final String TEXTURE_PREFIX =
+        "{\"textures\":{\"SKIN\":{\"url\":\"http://textures.minecraft.net/texture/";
+    private static final String TEXTURE_SUFFIX = "\"}}}";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static byte[] data = new byte[0];
+    private static ByteBuffer buffer = ByteBuffer.wrap(data);
+    private static String[] strings = new String[0];
+    private static int head_count = 0;
+    private static int offsets_pos;
+    private static int key_index_pos;
+    private static int texture_index_pos;
+    private static int texture_count = 0;
+    private static int records_pos;
+
+    private static final List<HeadMaterial> all = new AbstractList<>() {
+        @Override
+        public HeadMaterial get(int index) {
+            if (index < 0 || index >= head_count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return decode(index);
+        }
+
+        @Override
+        public int size() {
+            return head_count;
+        }
+    };
+
+    public static void load(final byte[] library) throws IOException {
+        final var buf = ByteBuffer.wrap(library);
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("Unsupported head library format");
+            }
+
+            final var new_strings = new String[buf.getInt()];
+            for (int i = 0; i < new_strings.length; ++i) {
+                new_strings[i] = read_string(library, buf);
+            }
+
+            final var new_head_count = buf.getInt();
+            final var new_offsets_pos = buf.position();
+            final var new_key_index_pos = new_offsets_pos + 4 * new_head_count;
+            buf.position(new_key_index_pos + 8 * new_head_count);
+            final var new_texture_count = buf.getInt();
+            final var new_texture_index_pos = buf.position();
+            final var new_records_pos = new_texture_index_pos + 8 * new_texture_count;
+            if (new_records_pos > library.length) {
+                throw new IOException("Truncated head library");
+            }
+
+            data = library;
+            buffer = buf;
+            strings = new_strings;
+            head_count = new_head_count;
+            offsets_pos = new_offsets_pos;
+            key_index_pos = new_key_index_pos;
+            texture_count = new_texture_count;
+            texture_index_pos = new_texture_index_pos;
+            records_pos = new_records_pos;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated head library", e);
+        }
+    }
+
+    private static String read_string(final byte[] bytes, final ByteBuffer buf) {
+        final var length = Short.toUnsignedInt(buf.getShort());
+        final var string = new String(bytes, buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return string;
+    }
+
+    private static ByteBuffer record(int index) {
+        return buffer.duplicate().position(records_pos + buffer.getInt(offsets_pos + 4 * index));
+    }
+
+    private static HeadMaterial decode(int index) {
+        final var buf = record(index);
+        final var id = read_string(data, buf);
+        final var name = read_string(data, buf);
+        final var category = strings[Short.toUnsignedInt(buf.getShort())];
 
-    public static void load(final String string) {
-        final var json = new JSONArray(string);
-        for (int i = 0; i < json.length(); ++i) {
-            // Deserialize
-            final var mat = HeadMaterial.from(json.getJSONObject(i));
+        final var tag_count = Byte.toUnsignedInt(buf.get());
+        final var tags = new ArrayList<String>(tag_count);
+        for (int i = 0; i < tag_count; ++i) {
+            tags.add(strings[Short.toUnsignedInt(buf.getShort())]);
+        }
+
+        final var key = namespaced_key("vane", category + "_" + id);
+        return new HeadMaterial(index, key, name, category, tags);
+    }
 
-            // Add to registry
-            registry.put(mat.key(), mat);
-            by_texture.put(mat.texture(), mat);
+    // Returns the value of the key of the given head, without decoding the rest of it.
+    private static String key_value(int index) {
+        final var buf = record(index);
+        final var id = read_string(data, buf);
+        read_string(data, buf);
+        return strings[Short.toUnsignedInt(buf.getShort())] + "_" + id;
+    }
+
+    /** Decodes the texture of the head at the given index. */
+    static String texture(int index) {
+        final var buf = record(index);
+        read_string(data, buf);
+        read_string(data, buf);
+        buf.getShort();
+        final var tag_count = Byte.toUnsignedInt(buf.get());
+        buf.position(buf.position() + 2 * tag_count);
 
-            // Add to category lookup
-            var category = categories.computeIfAbsent(mat.category(), k -> new ArrayList<>());
-            category.add(mat);
+        final var digits = Byte.toUnsignedInt(buf.get());
+        if (digits == 0) {
+            return read_string(data, buf);
+        }
+
+        final var hash = new char[digits];
+        for (int i = 0; i < digits; i += 2) {
+            final var packed = buf.get();
+            hash[i] = HEX_DIGITS[(packed >> 4) & 0xf];
+            if (i + 1 < digits) {
+                hash[i + 1] = HEX_DIGITS[packed & 0xf];
+            }
+        }
+
+        final var json = TEXTURE_PREFIX + new String(hash) + TEXTURE_SUFFIX;
+        return Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
 
-            // Add to tag lookup
-            for (final var tag : mat.tags()) {
-                var tag_list = tags.computeIfAbsent(tag, k -> new ArrayList<>());
-                tag_list.add(mat);
+    // Returns the position of the first entry with the given hash in the given index.
+    private static int lower_bound(int index_pos, int count, int hash) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            final var mid = (lo + hi) >>> 1;
+            if (buffer.getInt(index_pos + 8 * mid) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
         }
+        return lo;
     }
 
     public static HeadMaterial from(final NamespacedKey key) {
-        return registry.get(key);
+        if (!key.namespace().equals("vane")) {
+            return null;
+        }
+
+        final var value = key.value();
+        final var hash = value.hashCode();
+        for (int i = lower_bound(key_index_pos, head_count, hash); i < head_count; ++i) {
+            final var entry = key_index_pos + 8 * i;
+            if (buffer.getInt(entry) != hash) {
+                break;
+            }
+
+            final var head = buffer.getInt(entry + 4);
+            if (key_value(head).equals(value)) {
+                return decode(head);
+            }
+        }
+        return null;
     }
 
     public static HeadMaterial from_texture(final String base64_texture) {
-        return by_texture.get(base64_texture);
+        final var hash = base64_texture.hashCode();
+        for (int i = lower_bound(texture_index_pos, texture_count, hash); i < texture_count; ++i) {
+            final var entry = texture_index_pos + 8 * i;
+            if (buffer.getInt(entry) != hash) {
+                break;
+            }
+
+            final var head = buffer.getInt(entry + 4);
+            if (texture(head).equals(base64_texture)) {
+                return decode(head);
+            }
+        }
+        return null;
     }
 
-    public static Collection<HeadMaterial> all() {
-        return registry.values();
+    /** Returns all heads ordered by key. Heads are decoded on access. */
+    public static List<HeadMaterial> all() {
+        return all;
     }
 }
@@ -1,7 +1,8 @@
 package org.oddlama.vane.core.menu;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -11,6 +12,9 @@ import org.oddlama.vane.core.module.Context;
 
 public class HeadFilter implements Filter<HeadMaterial> {
 
+    // Index over the whole head library, built on first use
+    private static SubstringIndex<HeadMaterial> index = null;
+
     private String str = null;
 
     public HeadFilter() {}
@@ -42,22 +46,12 @@ public class HeadFilter implements Filter<HeadMaterial> {
         str = null;
     }
 
-    private boolean filter_by_categories(final HeadMaterial material) {
-        return material.category().toLowerCase().contains(str);
-    }
-
-    private boolean filter_by_tags(final HeadMaterial material) {
-        for (final var tag : material.tags()) {
-            if (tag.toLowerCase().contains(str)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private boolean filter_by_name(final HeadMaterial material) {
-        return material.name().toLowerCase().contains(str);
+    private static Collection<String> search_texts(final HeadMaterial material) {
+        final var texts = new ArrayList<String>(material.tags().size() + 2);
+        texts.add(material.name());
+        texts.add(material.category());
+        texts.addAll(material.tags());
+        return texts;
     }
 
     @Override
@@ -66,9 +60,9 @@ public class HeadFilter implements Filter<HeadMaterial> {
             return things;
         }
 
-        return things
-            .stream()
-            .filter(t -> filter_by_categories(t) || filter_by_tags(t) || filter_by_name(t))
-            .collect(Collectors.toList());
+        if (index == null || !index.indexes(things)) {
+            index = new SubstringIndex<>(things, HeadFilter::search_texts);
+        }
+        return index.search(str);
     }
 }
@@ -4,7 +4,6 @@ import static org.oddlama.vane.util.ItemUtil.name_item;
 import static org.oddlama.vane.util.ItemUtil.name_of;
 
 import java.util.List;
-import java.util.stream.Collectors;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -287,10 +286,8 @@ public class MenuFactory {
         final Consumer1<Player> on_cancel
     ) {
         final var menu_manager = context.get_module().core.menu_manager;
-        final var all_heads = HeadMaterialLibrary.all()
-            .stream()
-            .sorted((a, b) -> a.key().toString().compareToIgnoreCase(b.key().toString()))
-            .collect(Collectors.toList());
+        // Already sorted by key, and decoded lazily as pages are shown
+        final var all_heads = HeadMaterialLibrary.all();
 
         final var filter = new HeadFilter();
         return MenuFactory.generic_selector(
@@ -0,0 +1,177 @@
+package org.oddlama.vane.core.menu;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.oddlama.vane.core.functional.Function1;
+import org.oddlama.vane.util.LongObjectMap;
+
+/**
+ * A trigram index over a list of things, answering case-insensitive substring queries on the texts
+ * of each thing. Candidates are found by intersecting the posting lists of all trigrams of the
+ * query and then verified, so only a handful of texts are compared per search. Results are views
+ * of the indexed list, so things (e.g. lazily decoded heads) are only accessed for the visible page.
+ */
+public class SubstringIndex<T> {
+
+    // Separates the texts of a thing, so matches can't span two texts
+    private static final char SEPARATOR = '\0';
+
+    private final List<T> things;
+    // Lowercase texts of each thing, joined by SEPARATOR
+    private final String[] texts;
+    // trigram → ascending indices of all things containing it
+    private final LongObjectMap<Postings> postings = new LongObjectMap<>();
+
+    public SubstringIndex(final List<T> things, final Function1<T, Collection<String>> texts_of) {
+        this.things = things;
+        this.texts = new String[things.size()];
+
+        final var builder = new StringBuilder();
+        for (int i = 0; i < texts.length; ++i) {
+            builder.setLength(0);
+            for (final var text : texts_of.apply(things.get(i))) {
+                if (builder.length() > 0) {
+                    builder.append(SEPARATOR);
+                }
+                builder.append(text.toLowerCase());
+            }
+
+            final var text = builder.toString();
+            texts[i] = text;
+            for (int j = 0; j + 3 <= text.length(); ++j) {
+                final var trigram = trigram(text, j);
+                if (trigram < 0) {
+                    continue;
+                }
+                postings.computeIfAbsent(trigram, k -> new Postings()).add(i);
+            }
+        }
+
+        postings.forEach((trigram, list) -> list.trim());
+    }
+
+    // Packs three chars into a long, or returns -1 if they contain a separator
+    private static long trigram(final String text, int at) {
+        final var a = text.charAt(at);
+        final var b = text.charAt(at + 1);
+        final var c = text.charAt(at + 2);
+        if (a == SEPARATOR || b == SEPARATOR || c == SEPARATOR) {
+            return -1;
+        }
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /** Returns true if this index was built for the given list. */
+    public boolean indexes(final List<T> list) {
+        return list == things && list.size() == texts.length;
+    }
+
+    /** Returns all things with a text containing the given string (ignoring case), in list order. */
+    public List<T> search(final String query) {
+        final var str = query.toLowerCase();
+        if (str.indexOf(SEPARATOR) != -1) {
+            return List.of();
+        }
+
+        if (str.length() < 3) {
+            // Too short to use the index
+            return verify(null, str);
+        }
+
+        final var lists = new ArrayList<Postings>();
+        for (int j = 0; j + 3 <= str.length(); ++j) {
+            final var list = postings.get(trigram(str, j));
+            if (list == null) {
+                return List.of();
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+
+        // Intersect starting with the shortest list
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        var candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        var count = candidates.length;
+        for (int l = 1; l < lists.size() && count > 0; ++l) {
+            count = lists.get(l).retain(candidates, count);
+        }
+
+        return verify(Arrays.copyOf(candidates, count), str);
+    }
+
+    // Keeps all candidates (or all things if null) whose text actually contains the string
+    private List<T> verify(final int[] candidates, final String str) {
+        final var n = candidates == null ? texts.length : candidates.length;
+        final var matches = new int[n];
+        var count = 0;
+        for (int j = 0; j < n; ++j) {
+            final var i = candidates == null ? j : candidates[j];
+            if (texts[i].contains(str)) {
+                matches[count++] = i;
+            }
+        }
+        return new Matches<>(things, Arrays.copyOf(matches, count));
+    }
+
+    private static class Postings {
+
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        public void add(int id) {
+            // Things are indexed in order, so duplicates can only be the last element
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        public void trim() {
+            ids = Arrays.copyOf(ids, size);
+        }
+
+        // Removes all ids from candidates[0, count) which are not in this list. Returns the new count.
+        public int retain(final int[] candidates, int count) {
+            var kept = 0;
+            var from = 0;
+            for (int j = 0; j < count; ++j) {
+                final var pos = Arrays.binarySearch(ids, from, size, candidates[j]);
+                if (pos >= 0) {
+                    candidates[kept++] = candidates[j];
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static class Matches<T> extends AbstractList<T> {
+
+        private final List<T> things;
+        private final int[] indices;
+
+        public Matches(final List<T> things, final int[] indices) {
+            this.things = things;
+            this.indices = indices;
+        }
+
+        @Override
+        public T get(int index) {
+            return things.get(indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+}
@@ -4,9 +4,7 @@ import static org.oddlama.vane.util.BlockUtil.drop_naturally;
 import static org.oddlama.vane.util.BlockUtil.texture_from_skull;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
-import org.apache.commons.io.IOUtils;
 import org.bukkit.Material;
 import org.bukkit.block.Skull;
 import org.bukkit.event.EventHandler;
@@ -30,12 +28,13 @@ public class HeadLibrary extends Listener<Core> {
         super(context);
         // Load a head material library
         get_module().log.info("Loading head library...");
-        try {
-            HeadMaterialLibrary.load(
-                IOUtils.toString(get_module().getResource("head_library.json"), StandardCharsets.UTF_8)
-            );
+        try (final var stream = get_module().getResource("head_library.bin")) {
+            if (stream == null) {
+                throw new IOException("Missing resource head_library.bin");
+            }
+            HeadMaterialLibrary.load(stream.readAllBytes());
         } catch (IOException e) {
-            get_module().log.log(Level.SEVERE, "Error while loading head_library.json! Shutting down.", e);
+            get_module().log.log(Level.SEVERE, "Error while loading head_library.bin! Shutting down.", e);
             get_module().getServer().shutdown();
         }
     }
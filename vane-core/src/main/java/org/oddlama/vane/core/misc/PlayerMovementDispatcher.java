@@ -0,0 +1,138 @@
+package org.oddlama.vane.core.misc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.oddlama.vane.core.Core;
+import org.oddlama.vane.core.Listener;
+import org.oddlama.vane.core.functional.Consumer2;
+import org.oddlama.vane.core.module.Context;
+
+/**
+ * Tracks the block each player is standing on and publishes coarse-grained movement events to
+ * subscribers. Most movement events only change the player's position within a block, or just
+ * the view direction, so subscribers that only care about block or chunk transitions are called
+ * far less often than a PlayerMoveEvent listener. Subscribers should subscribe in their on_enable
+ * and unsubscribe in their on_disable.
+ */
+public class PlayerMovementDispatcher extends Listener<Core> {
+
+    // Subscribers called when the block below a player's feet changes.
+    private final List<Consumer2<Player, PlayerMoveEvent>> block_change_subscribers = new ArrayList<>();
+    // Subscribers called when the chunk of a player changes.
+    private final List<Consumer2<Player, PlayerMoveEvent>> chunk_change_subscribers = new ArrayList<>();
+    // Subscribers called for every movement of a gliding player.
+    private final List<Consumer2<Player, PlayerMoveEvent>> gliding_move_subscribers = new ArrayList<>();
+
+    private final HashMap<UUID, TrackedBlock> tracked_blocks = new HashMap<>();
+
+    public PlayerMovementDispatcher(Context<Core> context) {
+        super(context);
+    }
+
+    /** Calls the given function whenever the block below a player's feet changes. */
+    public void subscribe_block_change(final Consumer2<Player, PlayerMoveEvent> subscriber) {
+        block_change_subscribers.add(subscriber);
+    }
+
+    /** Calls the given function whenever a player enters another chunk. */
+    public void subscribe_chunk_change(final Consumer2<Player, PlayerMoveEvent> subscriber) {
+        chunk_change_subscribers.add(subscriber);
+    }
+
+    /** Calls the given function for every movement of a player that is gliding. */
+    public void subscribe_gliding_move(final Consumer2<Player, PlayerMoveEvent> subscriber) {
+        gliding_move_subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(final Consumer2<Player, PlayerMoveEvent> subscriber) {
+        block_change_subscribers.remove(subscriber);
+        chunk_change_subscribers.remove(subscriber);
+        gliding_move_subscribers.remove(subscriber);
+    }
+
+    private static void dispatch(
+        final List<Consumer2<Player, PlayerMoveEvent>> subscribers,
+        final Player player,
+        final PlayerMoveEvent event
+    ) {
+        for (int i = 0; i < subscribers.size(); ++i) {
+            subscribers.get(i).apply(player, event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_player_move(final PlayerMoveEvent event) {
+        final var player = event.getPlayer();
+        if (!gliding_move_subscribers.isEmpty() && player.isGliding()) {
+            dispatch(gliding_move_subscribers, player, event);
+        }
+
+        // Inspect the block just a little below the feet, so that standing on
+        // blocks lower than a full block (like paths) still counts as the block below.
+        final var to = event.getTo();
+        final var world = to.getWorld();
+        final var x = to.getBlockX();
+        final var y = (int) Math.floor(to.getY() - 0.1);
+        final var z = to.getBlockZ();
+
+        final var tracked = tracked_blocks.get(player.getUniqueId());
+        final boolean block_changed;
+        final boolean chunk_changed;
+        if (tracked == null) {
+            tracked_blocks.put(player.getUniqueId(), new TrackedBlock(world, x, y, z));
+            block_changed = true;
+            chunk_changed = true;
+        } else {
+            final var same_world = tracked.world == world;
+            block_changed = !same_world || tracked.x != x || tracked.y != y || tracked.z != z;
+            chunk_changed = !same_world || tracked.x >> 4 != x >> 4 || tracked.z >> 4 != z >> 4;
+            if (block_changed) {
+                tracked.world = world;
+                tracked.x = x;
+                tracked.y = y;
+                tracked.z = z;
+            }
+        }
+
+        if (block_changed) {
+            dispatch(block_change_subscribers, player, event);
+        }
+        if (chunk_changed) {
+            dispatch(chunk_change_subscribers, player, event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_player_quit(final PlayerQuitEvent event) {
+        tracked_blocks.remove(event.getPlayer().getUniqueId());
+    }
+
+    @Override
+    protected void on_disable() {
+        tracked_blocks.clear();
+        super.on_disable();
+    }
+
+    private static class TrackedBlock {
+
+        private World world;
+        private int x;
+        private int y;
+        private int z;
+
+        public TrackedBlock(final World world, int x, int y, int z) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
@@ -237,8 +237,8 @@ public abstract class Module<T extends Module<T>> extends JavaPlugin implements
 	public void onDisable() {
 		disable();
 
-		// Save persistent storage
-		save_persistent_storage();
+		// Save persistent storage, and wait until it has been written
+		flush_persistent_storage();
 
 		// Unregister in core
 		core.unregister_module(this);
@@ -425,6 +425,12 @@ public abstract class Module<T extends Module<T>> extends JavaPlugin implements
 		persistent_storage_manager.save(file);
 	}
 
+	public void flush_persistent_storage() {
+		// Write automatic persistent variables synchronously and stop the background writer
+		final var file = get_persistent_storage_file();
+		persistent_storage_manager.shutdown(file);
+	}
+
 	public void register_listener(Listener listener) {
 		getServer().getPluginManager().registerEvents(listener, this);
 	}
@@ -1,6 +1,9 @@
 package org.oddlama.vane.core.persistent;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.function.Function;
 import org.json.JSONObject;
@@ -10,13 +13,27 @@ public class PersistentField {
     private Object owner;
     private Field field;
     private String path;
+    // Compiled once, so saving and loading does no reflection or type inspection.
+    private PersistentSerializer.Codec codec;
+    private MethodHandle getter;
+    private MethodHandle setter;
 
     public PersistentField(Object owner, Field field, Function<String, String> map_name) {
         this.owner = owner;
         this.field = field;
         this.path = map_name.apply(field.getName().substring("storage_".length()));
+        this.codec = PersistentSerializer.codec(field);
 
         field.setAccessible(true);
+        try {
+            final var lookup = MethodHandles.lookup();
+            this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = lookup
+                .unreflectSetter(field)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.");
+        }
     }
 
     public String path() {
@@ -25,14 +42,14 @@ public class PersistentField {
 
     public Object get() {
         try {
-            return field.get(owner);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.");
+            return (Object) getter.invokeExact(owner);
+        } catch (Throwable e) {
+            throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.", e);
         }
     }
 
     public void save(JSONObject json) throws IOException {
-        json.put(path, PersistentSerializer.to_json(field, get()));
+        json.put(path, codec.to_json(get()));
     }
 
     public void load(JSONObject json) throws IOException {
@@ -40,10 +57,11 @@ public class PersistentField {
             throw new IOException("Missing key in persistent storage: '" + path + "'");
         }
 
+        final var value = codec.from_json(json.get(path));
         try {
-            field.set(owner, PersistentSerializer.from_json(field, json.get(path)));
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.");
+            setter.invokeExact(owner, value);
+        } catch (Throwable e) {
+            throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.", e);
         }
     }
 }
@@ -3,6 +3,12 @@ package org.oddlama.vane.core.persistent;
 import static org.oddlama.vane.util.MaterialUtil.material_from;
 import static org.oddlama.vane.util.StorageUtil.namespaced_key;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
@@ -10,18 +16,23 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.oddlama.vane.util.LazyBlock;
 import org.oddlama.vane.util.LazyLocation;
 
@@ -32,6 +43,20 @@ public class PersistentSerializer {
         R apply(T1 t1) throws IOException;
     }
 
+    @FunctionalInterface
+    public static interface BinaryWriter {
+        void write(DataOutput out, Object value) throws IOException;
+    }
+
+    @FunctionalInterface
+    public static interface BinaryReader {
+        Object read(DataInput in) throws IOException;
+    }
+
+    // Prefix of binary encoded values. A json document can never start with a zero byte,
+    // which allows telling both formats apart when reading.
+    private static final byte[] BINARY_MAGIC = { 0, 'v', 'b', 1 };
+
     private static Object serialize_namespaced_key(@NotNull final Object o) throws IOException {
         return ((NamespacedKey) o).toString();
     }
@@ -103,12 +128,82 @@ public class PersistentSerializer {
         return ItemStack.deserializeBytes(Base64.getDecoder().decode(((String) o).getBytes(StandardCharsets.UTF_8)));
     }
 
+    private static void write_lazy_location(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var lazy_location = (LazyLocation) o;
+        final var location = lazy_location.location();
+        to_binary(UUID.class, lazy_location.world_id(), out);
+        out.writeDouble(location.getX());
+        out.writeDouble(location.getY());
+        out.writeDouble(location.getZ());
+        out.writeFloat(location.getPitch());
+        out.writeFloat(location.getYaw());
+    }
+
+    private static LazyLocation read_lazy_location(final DataInput in) throws IOException {
+        final var world_id = from_binary(UUID.class, in);
+        final var x = in.readDouble();
+        final var y = in.readDouble();
+        final var z = in.readDouble();
+        final var pitch = in.readFloat();
+        final var yaw = in.readFloat();
+        // The constructor forwards its arguments to Location in (yaw, pitch) order
+        return new LazyLocation(world_id, x, y, z, yaw, pitch);
+    }
+
+    private static void write_lazy_block(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var lazy_block = (LazyBlock) o;
+        to_binary(UUID.class, lazy_block.world_id(), out);
+        out.writeInt(lazy_block.x());
+        out.writeInt(lazy_block.y());
+        out.writeInt(lazy_block.z());
+    }
+
+    private static LazyBlock read_lazy_block(final DataInput in) throws IOException {
+        final var world_id = from_binary(UUID.class, in);
+        return new LazyBlock(world_id, in.readInt(), in.readInt(), in.readInt());
+    }
+
+    private static void write_item_stack(final DataOutput out, @NotNull final Object o) throws IOException {
+        write_bytes(out, ((ItemStack) o).serializeAsBytes());
+    }
+
+    private static ItemStack read_item_stack(final DataInput in) throws IOException {
+        return ItemStack.deserializeBytes(read_bytes(in));
+    }
+
+    public static void write_bytes(final DataOutput out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static byte[] read_bytes(final DataInput in) throws IOException {
+        final var length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length " + length + " in binary data");
+        }
+        final var bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // DataOutput.writeUTF is limited to 64KiB, so strings are stored as length-prefixed UTF-8 instead.
+    public static void write_string(final DataOutput out, final String string) throws IOException {
+        write_bytes(out, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String read_string(final DataInput in) throws IOException {
+        return new String(read_bytes(in), StandardCharsets.UTF_8);
+    }
+
     private static boolean is_null(Object o) {
         return o == null || o == JSONObject.NULL;
     }
 
     public static final Map<Class<?>, Function<Object, Object>> serializers = new HashMap<>();
     public static final Map<Class<?>, Function<Object, Object>> deserializers = new HashMap<>();
+    // Optional binary codecs. Types without one are stored as embedded json in binary data.
+    public static final Map<Class<?>, BinaryWriter> binary_serializers = new HashMap<>();
+    public static final Map<Class<?>, BinaryReader> binary_deserializers = new HashMap<>();
 
     static {
         // Primitive types
@@ -155,106 +250,484 @@ public class PersistentSerializer {
         deserializers.put(Material.class, PersistentSerializer::deserialize_material);
         serializers.put(ItemStack.class, PersistentSerializer::serialize_item_stack);
         deserializers.put(ItemStack.class, PersistentSerializer::deserialize_item_stack);
+
+        // Binary codecs for the same types
+        binary_serializers.put(boolean.class, (out, x) -> out.writeBoolean((Boolean) x));
+        binary_serializers.put(char.class, (out, x) -> out.writeChar((Character) x));
+        binary_serializers.put(double.class, (out, x) -> out.writeDouble((Double) x));
+        binary_serializers.put(float.class, (out, x) -> out.writeFloat((Float) x));
+        binary_serializers.put(int.class, (out, x) -> out.writeInt((Integer) x));
+        binary_serializers.put(long.class, (out, x) -> out.writeLong((Long) x));
+        binary_serializers.put(Boolean.class, binary_serializers.get(boolean.class));
+        binary_serializers.put(Character.class, binary_serializers.get(char.class));
+        binary_serializers.put(Double.class, binary_serializers.get(double.class));
+        binary_serializers.put(Float.class, binary_serializers.get(float.class));
+        binary_serializers.put(Integer.class, binary_serializers.get(int.class));
+        binary_serializers.put(Long.class, binary_serializers.get(long.class));
+
+        binary_deserializers.put(boolean.class, DataInput::readBoolean);
+        binary_deserializers.put(char.class, DataInput::readChar);
+        binary_deserializers.put(double.class, DataInput::readDouble);
+        binary_deserializers.put(float.class, DataInput::readFloat);
+        binary_deserializers.put(int.class, DataInput::readInt);
+        binary_deserializers.put(long.class, DataInput::readLong);
+        binary_deserializers.put(Boolean.class, DataInput::readBoolean);
+        binary_deserializers.put(Character.class, DataInput::readChar);
+        binary_deserializers.put(Double.class, DataInput::readDouble);
+        binary_deserializers.put(Float.class, DataInput::readFloat);
+        binary_deserializers.put(Integer.class, DataInput::readInt);
+        binary_deserializers.put(Long.class, DataInput::readLong);
+
+        binary_serializers.put(String.class, (out, x) -> write_string(out, (String) x));
+        binary_deserializers.put(String.class, PersistentSerializer::read_string);
+        binary_serializers.put(UUID.class, (out, x) -> {
+            out.writeLong(((UUID) x).getMostSignificantBits());
+            out.writeLong(((UUID) x).getLeastSignificantBits());
+        });
+        binary_deserializers.put(UUID.class, in -> new UUID(in.readLong(), in.readLong()));
+
+        binary_serializers.put(NamespacedKey.class, (out, x) -> write_string(out, x.toString()));
+        binary_deserializers.put(NamespacedKey.class, in -> deserialize_namespaced_key(read_string(in)));
+        binary_serializers.put(LazyLocation.class, PersistentSerializer::write_lazy_location);
+        binary_deserializers.put(LazyLocation.class, PersistentSerializer::read_lazy_location);
+        binary_serializers.put(LazyBlock.class, PersistentSerializer::write_lazy_block);
+        binary_deserializers.put(LazyBlock.class, PersistentSerializer::read_lazy_block);
+        binary_serializers.put(Material.class, (out, x) -> write_string(out, ((Material) x).getKey().toString()));
+        binary_deserializers.put(Material.class, in -> material_from(deserialize_namespaced_key(read_string(in))));
+        binary_serializers.put(ItemStack.class, PersistentSerializer::write_item_stack);
+        binary_deserializers.put(ItemStack.class, PersistentSerializer::read_item_stack);
     }
 
-    public static Object to_json(final Field field, final Object value) throws IOException {
-        return to_json(field.getGenericType(), value);
+    /**
+     * A precompiled (de-)serializer for a single type. Codecs for parameterized types
+     * are compiled once into a tree of nested codecs, so no type inspection happens
+     * while converting values.
+     */
+    public static interface Codec {
+        Object to_json(Object value) throws IOException;
+
+        Object from_json(Object json) throws IOException;
+
+        void to_binary(DataOutput out, Object value) throws IOException;
+
+        Object from_binary(DataInput in) throws IOException;
     }
 
-    public static Object to_json(final Class<?> cls, final Object value) throws IOException {
-        final var serializer = serializers.get(cls);
-        if (serializer == null) {
-            throw new IOException("Cannot serialize " + cls + ". This is a bug.");
+    // Codecs for plain classes. Lookups of the registered functions happen lazily on first use,
+    // as modules may register their serializers after a codec was created.
+    private static final ClassValue<ClassCodec> class_codecs = new ClassValue<>() {
+        @Override
+        protected ClassCodec computeValue(Class<?> cls) {
+            return new ClassCodec(cls);
         }
-        if (is_null(value)) {
-            return JSONObject.NULL;
+    };
+    // Codecs for parameterized field types (e.g. Map<UUID, Role>), cached per class declaring the
+    // field. Holding them in that class instead of a global map means types of other plugins'
+    // classes don't keep those plugins' class loaders alive after a reload.
+    private static final ClassValue<Map<Type, Codec>> field_codecs = new ClassValue<>() {
+        @Override
+        protected Map<Type, Codec> computeValue(Class<?> owner) {
+            return new ConcurrentHashMap<>();
         }
-        return serializer.apply(value);
+    };
+
+    /**
+     * Returns a codec for the given type. Codecs for parameterized types are compiled on each
+     * call, so prefer {@link #codec(Field)} which caches them.
+     */
+    public static Codec codec(final Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return class_codecs.get((Class<?>) type);
+        }
+        return compile((ParameterizedType) type);
     }
 
-    public static Object to_json(final Type type, final Object value) throws IOException {
-        if (type instanceof ParameterizedType) {
-            final var parameterized_type = (ParameterizedType) type;
-            final var base_type = parameterized_type.getRawType();
-            final var type_args = parameterized_type.getActualTypeArguments();
-            if (base_type.equals(Map.class)) {
-                final var K = (Class<?>) type_args[0];
-                final var V = type_args[1];
-                final var json = new JSONObject();
-                for (final var e : ((Map<?, ?>) value).entrySet()) {
-                    json.put((String) to_json(K, e.getKey()), to_json(V, e.getValue()));
-                }
-                return json;
-            } else if (base_type.equals(Set.class)) {
-                final var T = type_args[0];
-                final var json = new JSONArray();
-                for (final var t : (Set<?>) value) {
-                    json.put(to_json(T, t));
-                }
-                return json;
-            } else if (base_type.equals(List.class)) {
-                final var T = type_args[0];
-                final var json = new JSONArray();
-                for (final var t : (List<?>) value) {
-                    json.put(to_json(T, t));
-                }
-                return json;
-            } else {
-                throw new IOException("Cannot serialize " + type + ". This is a bug.");
+    public static Codec codec(final Field field) {
+        final var type = field.getGenericType();
+        if (!(type instanceof ParameterizedType)) {
+            return class_codecs.get((Class<?>) type);
+        }
+
+        final var codecs = field_codecs.get(field.getDeclaringClass());
+        var codec = codecs.get(type);
+        if (codec == null) {
+            // Compiled outside of computeIfAbsent, as compiling recurses into nested types.
+            codec = compile((ParameterizedType) type);
+            final var existing = codecs.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
             }
+        }
+        return codec;
+    }
+
+    /** Returns the codec for the declared type of the given field. Intended for static initializers. */
+    public static Codec codec(final Class<?> owner, final String field_name) {
+        try {
+            return codec(owner.getDeclaredField(field_name));
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Invalid field. This is a bug.", e);
+        }
+    }
+
+    private static Codec compile(final ParameterizedType type) {
+        final var base_type = type.getRawType();
+        final var type_args = type.getActualTypeArguments();
+        if (base_type.equals(Map.class)) {
+            return new MapCodec(codec(type_args[0]), codec(type_args[1]));
+        } else if (base_type.equals(Set.class)) {
+            return new CollectionCodec(codec(type_args[0]), HashSet::new);
+        } else if (base_type.equals(List.class)) {
+            return new CollectionCodec(codec(type_args[0]), ArrayList::new);
         } else {
-            return to_json((Class<?>) type, value);
+            return new UnsupportedCodec(type);
         }
     }
 
+    public static Object to_json(final Field field, final Object value) throws IOException {
+        return codec(field).to_json(value);
+    }
+
+    public static Object to_json(final Class<?> cls, final Object value) throws IOException {
+        return class_codecs.get(cls).to_json(value);
+    }
+
+    public static Object to_json(final Type type, final Object value) throws IOException {
+        return codec(type).to_json(value);
+    }
+
     public static Object from_json(final Field field, final Object value) throws IOException {
-        return from_json(field.getGenericType(), value);
+        return codec(field).from_json(value);
     }
 
     @SuppressWarnings("unchecked")
     public static <U> U from_json(final Class<U> cls, final Object value) throws IOException {
-        final var deserializer = deserializers.get(cls);
-        if (deserializer == null) {
-            throw new IOException("Cannot deserialize " + cls + ". This is a bug.");
+        return (U) class_codecs.get(cls).from_json(value);
+    }
+
+    public static Object from_json(final Type type, final Object json) throws IOException {
+        return codec(type).from_json(json);
+    }
+
+    /** Returns whether the given bytes were produced by {@link #to_bytes}, as opposed to legacy json text. */
+    public static boolean is_binary(final byte[] bytes) {
+        if (bytes.length < BINARY_MAGIC.length) {
+            return false;
         }
-        if (is_null(value)) {
-            return null;
+        for (int i = 0; i < BINARY_MAGIC.length; ++i) {
+            if (bytes[i] != BINARY_MAGIC[i]) {
+                return false;
+            }
         }
-        return (U) deserializer.apply(value);
+        return true;
     }
 
-    public static Object from_json(final Type type, final Object json) throws IOException {
-        if (type instanceof ParameterizedType) {
-            final var parameterized_type = (ParameterizedType) type;
-            final var base_type = parameterized_type.getRawType();
-            final var type_args = parameterized_type.getActualTypeArguments();
-            if (base_type.equals(Map.class)) {
-                final var K = (Class<?>) type_args[0];
-                final var V = type_args[1];
-                final var value = new HashMap<Object, Object>();
-                for (final var key : ((JSONObject) json).keySet()) {
-                    value.put(from_json(K, key), from_json(V, ((JSONObject) json).get(key)));
+    public static byte[] to_bytes(final Class<?> cls, final Object value) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(bytes);
+        out.write(BINARY_MAGIC);
+        to_binary(cls, value, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Decodes bytes produced by {@link #to_bytes}. Legacy json text is detected and decoded transparently. */
+    public static <U> U from_bytes(final Class<U> cls, final byte[] bytes) throws IOException {
+        if (!is_binary(bytes)) {
+            try {
+                return from_json(cls, new JSONTokener(new String(bytes, StandardCharsets.UTF_8)).nextValue());
+            } catch (JSONException e) {
+                throw new IOException("Invalid json data", e);
+            }
+        }
+
+        final var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipNBytes(BINARY_MAGIC.length);
+        return from_binary(cls, in);
+    }
+
+    public static void to_binary(final Class<?> cls, final Object value, final DataOutput out) throws IOException {
+        class_codecs.get(cls).to_binary(out, value);
+    }
+
+    public static void to_binary(final Type type, final Object value, final DataOutput out) throws IOException {
+        codec(type).to_binary(out, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <U> U from_binary(final Class<U> cls, final DataInput in) throws IOException {
+        return (U) class_codecs.get(cls).from_binary(in);
+    }
+
+    public static Object from_binary(final Type type, final DataInput in) throws IOException {
+        return codec(type).from_binary(in);
+    }
+
+    private static class ClassCodec implements Codec {
+
+        private final Class<?> cls;
+        private Function<Object, Object> serializer = null;
+        private Function<Object, Object> deserializer = null;
+        private BinaryWriter binary_serializer = null;
+        private BinaryReader binary_deserializer = null;
+        private boolean binary_resolved = false;
+
+        public ClassCodec(final Class<?> cls) {
+            this.cls = cls;
+        }
+
+        private Function<Object, Object> serializer() throws IOException {
+            if (serializer == null) {
+                serializer = serializers.get(cls);
+                if (serializer == null) {
+                    throw new IOException("Cannot serialize " + cls + ". This is a bug.");
                 }
-                return value;
-            } else if (base_type.equals(Set.class)) {
-                final var T = type_args[0];
-                final var value = new HashSet<Object>();
-                for (final var t : (JSONArray) json) {
-                    value.add(from_json(T, t));
+            }
+            return serializer;
+        }
+
+        private Function<Object, Object> deserializer() throws IOException {
+            if (deserializer == null) {
+                deserializer = deserializers.get(cls);
+                if (deserializer == null) {
+                    throw new IOException("Cannot deserialize " + cls + ". This is a bug.");
                 }
-                return value;
-            } else if (base_type.equals(List.class)) {
-                final var T = type_args[0];
-                final var value = new ArrayList<Object>();
-                for (final var t : (JSONArray) json) {
-                    value.add(from_json(T, t));
+            }
+            return deserializer;
+        }
+
+        private void resolve_binary() {
+            // Binary codecs are optional, so only remember a negative lookup once
+            // the json codec has been registered, which happens in the same place.
+            if (binary_resolved) {
+                return;
+            }
+            binary_serializer = binary_serializers.get(cls);
+            binary_deserializer = binary_deserializers.get(cls);
+            binary_resolved = serializers.containsKey(cls) || binary_serializer != null;
+        }
+
+        @Override
+        public Object to_json(final Object value) throws IOException {
+            final var s = serializer();
+            if (is_null(value)) {
+                return JSONObject.NULL;
+            }
+            return s.apply(value);
+        }
+
+        @Override
+        public Object from_json(final Object json) throws IOException {
+            final var d = deserializer();
+            if (is_null(json)) {
+                return null;
+            }
+            return d.apply(json);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void to_binary(final DataOutput out, final Object value) throws IOException {
+            if (is_null(value)) {
+                out.writeBoolean(false);
+                return;
+            }
+            out.writeBoolean(true);
+
+            resolve_binary();
+            if (binary_serializer != null) {
+                binary_serializer.write(out, value);
+            } else if (cls.isEnum()) {
+                write_string(out, ((Enum) value).name());
+            } else {
+                // Embed the json representation for types without a binary codec
+                write_string(out, JSONObject.valueToString(to_json(value)));
+            }
+        }
+
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public Object from_binary(final DataInput in) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+
+            resolve_binary();
+            if (binary_deserializer != null) {
+                return binary_deserializer.read(in);
+            } else if (cls.isEnum()) {
+                try {
+                    return Enum.valueOf((Class) cls, read_string(in));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid enum constant for " + cls, e);
                 }
-                return value;
             } else {
-                throw new IOException("Cannot deserialize " + type + ". This is a bug.");
+                try {
+                    return from_json(new JSONTokener(read_string(in)).nextValue());
+                } catch (JSONException e) {
+                    throw new IOException("Invalid embedded json data", e);
+                }
             }
-        } else {
-            return from_json((Class<?>) type, json);
+        }
+    }
+
+    private static class MapCodec implements Codec {
+
+        private final Codec key_codec;
+        private final Codec value_codec;
+
+        public MapCodec(final Codec key_codec, final Codec value_codec) {
+            this.key_codec = key_codec;
+            this.value_codec = value_codec;
+        }
+
+        @Override
+        public Object to_json(final Object value) throws IOException {
+            if (is_null(value)) {
+                return JSONObject.NULL;
+            }
+            final var json = new JSONObject();
+            for (final var e : ((Map<?, ?>) value).entrySet()) {
+                json.put((String) key_codec.to_json(e.getKey()), value_codec.to_json(e.getValue()));
+            }
+            return json;
+        }
+
+        @Override
+        public Object from_json(final Object json) throws IOException {
+            if (is_null(json)) {
+                return null;
+            }
+            final var json_object = (JSONObject) json;
+            final var value = new HashMap<Object, Object>();
+            for (final var key : json_object.keySet()) {
+                value.put(key_codec.from_json(key), value_codec.from_json(json_object.get(key)));
+            }
+            return value;
+        }
+
+        @Override
+        public void to_binary(final DataOutput out, final Object value) throws IOException {
+            if (is_null(value)) {
+                out.writeBoolean(false);
+                return;
+            }
+            out.writeBoolean(true);
+
+            final var map = (Map<?, ?>) value;
+            out.writeInt(map.size());
+            for (final var e : map.entrySet()) {
+                key_codec.to_binary(out, e.getKey());
+                value_codec.to_binary(out, e.getValue());
+            }
+        }
+
+        @Override
+        public Object from_binary(final DataInput in) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+
+            final var size = in.readInt();
+            final var value = new HashMap<Object, Object>();
+            for (int i = 0; i < size; ++i) {
+                final var key = key_codec.from_binary(in);
+                value.put(key, value_codec.from_binary(in));
+            }
+            return value;
+        }
+    }
+
+    private static class CollectionCodec implements Codec {
+
+        private final Codec element_codec;
+        private final Supplier<Collection<Object>> factory;
+
+        public CollectionCodec(final Codec element_codec, final Supplier<Collection<Object>> factory) {
+            this.element_codec = element_codec;
+            this.factory = factory;
+        }
+
+        @Override
+        public Object to_json(final Object value) throws IOException {
+            if (is_null(value)) {
+                return JSONObject.NULL;
+            }
+            final var json = new JSONArray();
+            for (final var t : (Collection<?>) value) {
+                json.put(element_codec.to_json(t));
+            }
+            return json;
+        }
+
+        @Override
+        public Object from_json(final Object json) throws IOException {
+            if (is_null(json)) {
+                return null;
+            }
+            final var value = factory.get();
+            for (final var t : (JSONArray) json) {
+                value.add(element_codec.from_json(t));
+            }
+            return value;
+        }
+
+        @Override
+        public void to_binary(final DataOutput out, final Object value) throws IOException {
+            if (is_null(value)) {
+                out.writeBoolean(false);
+                return;
+            }
+            out.writeBoolean(true);
+
+            final var collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for (final var t : collection) {
+                element_codec.to_binary(out, t);
+            }
+        }
+
+        @Override
+        public Object from_binary(final DataInput in) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+
+            final var size = in.readInt();
+            final var value = factory.get();
+            for (int i = 0; i < size; ++i) {
+                value.add(element_codec.from_binary(in));
+            }
+            return value;
+        }
+    }
+
+    private static class UnsupportedCodec implements Codec {
+
+        private final Type type;
+
+        public UnsupportedCodec(final Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object to_json(final Object value) throws IOException {
+            throw new IOException("Cannot serialize " + type + ". This is a bug.");
+        }
+
+        @Override
+        public Object from_json(final Object json) throws IOException {
+            throw new IOException("Cannot deserialize " + type + ". This is a bug.");
+        }
+
+        @Override
+        public void to_binary(final DataOutput out, final Object value) throws IOException {
+            throw new IOException("Cannot serialize " + type + ". This is a bug.");
+        }
+
+        @Override
+        public Object from_binary(final DataInput in) throws IOException {
+            throw new IOException("Cannot deserialize " + type + ". This is a bug.");
         }
     }
 }
@@ -11,6 +11,10 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -33,11 +37,30 @@ public class PersistentStorageManager {
         }
     }
 
+    // A serialized snapshot of all persistent fields, waiting to be written to a file.
+    private static class PendingWrite {
+
+        public final File file;
+        public final JSONObject json;
+
+        public PendingWrite(File file, JSONObject json) {
+            this.file = file;
+            this.json = json;
+        }
+    }
+
     private List<PersistentField> persistent_fields = new ArrayList<>();
     private List<Migration> migrations = new ArrayList<>();
     Module<?> module;
     boolean is_loaded = false;
 
+    // Snapshots are stringified and written on a dedicated thread. Only the most recent
+    // snapshot is kept, so saves that overlap with a running write are coalesced.
+    private ExecutorService io_executor = null;
+    private final AtomicReference<PendingWrite> pending_write = new AtomicReference<>();
+    // Serializes all file writes, both from the executor and from synchronous flushes.
+    private final Object write_lock = new Object();
+
     public PersistentStorageManager(Module<?> module) {
         this.module = module;
         compile(module, s -> s);
@@ -165,13 +188,77 @@ public class PersistentStorageManager {
         return true;
     }
 
+    /**
+     * Captures the current state of all persistent fields on the calling thread and writes it
+     * to the given file asynchronously. Must be called from the thread that owns the fields.
+     */
     public void save(File file) {
+        final var json = snapshot();
+        if (json == null) {
+            return;
+        }
+
+        // Only schedule a write if none is queued yet, a queued write will pick up the newest snapshot.
+        if (pending_write.getAndSet(new PendingWrite(file, json)) == null) {
+            io_executor().execute(this::write_pending);
+        }
+    }
+
+    /**
+     * Captures the current state of all persistent fields and writes it to the given file
+     * before returning. Any previously queued snapshot is superseded, and a write that is
+     * currently in progress is waited for.
+     */
+    public void save_sync(File file) {
+        final var json = snapshot();
+        if (json != null) {
+            pending_write.set(new PendingWrite(file, json));
+        }
+        write_pending();
+    }
+
+    /** Flushes the given file synchronously and stops the background writer. */
+    public void shutdown(File file) {
+        save_sync(file);
+
+        final ExecutorService executor;
+        synchronized (this) {
+            executor = io_executor;
+            io_executor = null;
+        }
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                module.log.warning("Timed out while waiting for persistent storage writer to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized ExecutorService io_executor() {
+        if (io_executor == null) {
+            io_executor = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, "vane-storage-" + module.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return io_executor;
+    }
+
+    private JSONObject snapshot() {
         if (!is_loaded) {
             // Don't save if never loaded or a previous load was faulty.
-            return;
+            return null;
         }
 
-        // Create json with whole content
+        // Create json with whole content. All values are converted to
+        // plain json values here, so the result shares no state with the fields.
         final var json = new JSONObject();
 
         // Save version
@@ -187,6 +274,19 @@ public class PersistentStorageManager {
             }
         }
 
+        return json;
+    }
+
+    private void write_pending() {
+        synchronized (write_lock) {
+            final var pending = pending_write.getAndSet(null);
+            if (pending != null) {
+                write(pending.file, pending.json);
+            }
+        }
+    }
+
+    private void write(File file, JSONObject json) {
         // Save to tmp file, then move atomically to prevent corruption.
         final var tmp_file = new File(file.getAbsolutePath() + ".tmp");
         try {
@@ -0,0 +1,57 @@
+package org.oddlama.vane.core.persistent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tracks changes to objects that are stored as individual entries in a world's persistent data
+ * container. Modules record which ids were created or updated and which were deleted, and the
+ * set of ids currently stored in each world is kept in memory. Saving a world then only needs
+ * to touch the changed entries instead of scanning all keys of the container.
+ */
+public class WorldStorageJournal {
+
+    // world_id → ids currently stored in the world's persistent data container
+    private final Map<UUID, Set<UUID>> stored = new HashMap<>();
+    // world_id → ids that need to be (re-)written on the next save
+    private final Map<UUID, Set<UUID>> updated = new HashMap<>();
+    // world_id → ids that need to be removed on the next save
+    private final Map<UUID, Set<UUID>> deleted = new HashMap<>();
+
+    private static Set<UUID> take(final Map<UUID, Set<UUID>> map, final UUID world_id) {
+        final var set = map.remove(world_id);
+        return set == null ? Set.of() : set;
+    }
+
+    /** Records that the given id was found in the world's storage while loading. */
+    public void mark_stored(final UUID world_id, final UUID id) {
+        stored.computeIfAbsent(world_id, k -> new HashSet<>()).add(id);
+    }
+
+    /** Records that the given id was removed from the world's storage. Returns false if it wasn't stored. */
+    public boolean mark_unstored(final UUID world_id, final UUID id) {
+        final var set = stored.get(world_id);
+        return set != null && set.remove(id);
+    }
+
+    public void mark_updated(final UUID world_id, final UUID id) {
+        updated.computeIfAbsent(world_id, k -> new HashSet<>()).add(id);
+    }
+
+    public void mark_deleted(final UUID world_id, final UUID id) {
+        deleted.computeIfAbsent(world_id, k -> new HashSet<>()).add(id);
+    }
+
+    /** Returns and clears all ids that need to be written for the given world. */
+    public Set<UUID> take_updated(final UUID world_id) {
+        return take(updated, world_id);
+    }
+
+    /** Returns and clears all ids that need to be removed for the given world. */
+    public Set<UUID> take_deleted(final UUID world_id) {
+        return take(deleted, world_id);
+    }
+}
@@ -0,0 +1,221 @@
+package org.oddlama.vane.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A list of blocks (e.g. of a piston or explosion event) grouped by world and chunk. Modules
+ * answer queries for the whole batch against their own chunk-level index, which is only consulted
+ * once per chunk instead of once per block. The grouping is built once per event and shared by all
+ * listeners of that event, so the cost doesn't multiply with the number of protection modules.
+ * Only to be used from the main thread.
+ */
+public class BlockSetQuery {
+
+    /** A chunk-level index of some module, such as the portal block index. */
+    @FunctionalInterface
+    public static interface ChunkIndex {
+        /** Returns a matcher for blocks in the given chunk, or null if no block in it can match. */
+        public @Nullable BlockMatcher in_chunk(World world, long chunk_key);
+    }
+
+    @FunctionalInterface
+    public static interface BlockMatcher {
+        public boolean matches(int x, int y, int z);
+    }
+
+    // The most recent query. Only weakly referenced, so the query doesn't keep the event,
+    // its blocks and their worlds alive after the event has been handled.
+    private static WeakReference<BlockSetQuery> last_query = new WeakReference<>(null);
+
+    // The event this query was built for
+    private final Object event;
+    private List<Block> blocks;
+    // The world and coordinates of each block, in list order
+    private int size;
+    private World[] worlds;
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private final List<Group> groups = new ArrayList<>();
+
+    private static class Group {
+
+        private final World world;
+        private final long chunk_key;
+        private int[] indices = new int[8];
+        private int size = 0;
+
+        public Group(final World world, long chunk_key) {
+            this.world = world;
+            this.chunk_key = chunk_key;
+        }
+
+        public void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+    }
+
+    private BlockSetQuery(final Object event, final List<Block> blocks) {
+        this.event = event;
+        this.blocks = blocks;
+        final var n = blocks.size();
+        size = n;
+        worlds = new World[n];
+        xs = new int[n];
+        ys = new int[n];
+        zs = new int[n];
+
+        final var groups_by_world = new HashMap<World, LongObjectMap<Group>>();
+        int i = 0;
+        for (final var block : blocks) {
+            final var world = block.getWorld();
+            final var x = block.getX();
+            final var z = block.getZ();
+            worlds[i] = world;
+            xs[i] = x;
+            ys[i] = block.getY();
+            zs[i] = z;
+
+            final var chunk_key = Chunk.getChunkKey(x >> 4, z >> 4);
+            final var groups_by_chunk = groups_by_world.computeIfAbsent(world, k -> new LongObjectMap<>());
+            var group = groups_by_chunk.get(chunk_key);
+            if (group == null) {
+                group = new Group(world, chunk_key);
+                groups_by_chunk.put(chunk_key, group);
+                groups.add(group);
+            }
+            group.add(i++);
+        }
+    }
+
+    // Compares by position, as some events (e.g. pistons) create new block objects on each access
+    private boolean is_snapshot_of(final List<Block> list) {
+        if (list.size() != size) {
+            return false;
+        }
+
+        int i = 0;
+        for (final var block : list) {
+            if (
+                block.getX() != xs[i] || block.getY() != ys[i] || block.getZ() != zs[i] || block.getWorld() != worlds[i]
+            ) {
+                return false;
+            }
+            ++i;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the query for the given block list of the given event. Listeners of the same event
+     * share the grouping, as long as the list wasn't changed by someone else in between.
+     */
+    public static BlockSetQuery of(final Object event, final List<Block> blocks) {
+        final var last = last_query.get();
+        if (last != null && last.event == event && last.is_snapshot_of(blocks)) {
+            // Some events return a new view of the same list with new block objects on each call
+            last.blocks = blocks;
+            return last;
+        }
+
+        final var query = new BlockSetQuery(event, blocks);
+        last_query = new WeakReference<>(query);
+        return query;
+    }
+
+    /** Returns true if any block is matched by the given index. */
+    public boolean any_match(final ChunkIndex index) {
+        for (final var group : groups) {
+            final var matcher = index.in_chunk(group.world, group.chunk_key);
+            if (matcher == null) {
+                continue;
+            }
+
+            for (int j = 0; j < group.size; ++j) {
+                final var i = group.indices[j];
+                if (matcher.matches(xs[i], ys[i], zs[i])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Removes all blocks matched by the given index from the underlying (mutable) block list. */
+    public void remove_matching(final ChunkIndex index) {
+        boolean[] removed = null;
+        for (final var group : groups) {
+            final var matcher = index.in_chunk(group.world, group.chunk_key);
+            if (matcher == null) {
+                continue;
+            }
+
+            for (int j = 0; j < group.size; ++j) {
+                final var i = group.indices[j];
+                if (matcher.matches(xs[i], ys[i], zs[i])) {
+                    if (removed == null) {
+                        removed = new boolean[size];
+                    }
+                    removed[i] = true;
+                }
+            }
+        }
+
+        if (removed == null) {
+            return;
+        }
+
+        final var is_removed = removed;
+        final var position = new int[] { 0 };
+        blocks.removeIf(block -> is_removed[position[0]++]);
+        compact(is_removed);
+    }
+
+    // Drops removed blocks from the grouping, so it stays valid for later listeners
+    private void compact(final boolean[] removed) {
+        final var new_index = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; ++i) {
+            if (removed[i]) {
+                continue;
+            }
+
+            new_index[i] = n;
+            worlds[n] = worlds[i];
+            xs[n] = xs[i];
+            ys[n] = ys[i];
+            zs[n] = zs[i];
+            ++n;
+        }
+        Arrays.fill(worlds, n, size, null);
+        size = n;
+
+        final var it = groups.iterator();
+        while (it.hasNext()) {
+            final var group = it.next();
+            int size = 0;
+            for (int j = 0; j < group.size; ++j) {
+                final var i = group.indices[j];
+                if (!removed[i]) {
+                    group.indices[size++] = new_index[i];
+                }
+            }
+
+            group.size = size;
+            if (size == 0) {
+                it.remove();
+            }
+        }
+    }
+}
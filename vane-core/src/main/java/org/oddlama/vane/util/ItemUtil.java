@@ -10,6 +10,7 @@ import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import io.papermc.paper.registry.RegistryAccess;
 import io.papermc.paper.registry.RegistryKey;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -201,52 +202,109 @@ public class ItemUtil {
         return 0;
     }
 
+    // Packed sort keys order stacks by creative tab (6 bits), item id (16 bits),
+    // damage (16 bits) and descending count (8 bits). Empty stacks and nulls use
+    // the otherwise unused tab value 63 so they are sorted after everything else.
+    private static final long EMPTY_SORT_KEY = 63L << 40;
+    private static final long NULL_SORT_KEY = EMPTY_SORT_KEY | 1;
+
+    /**
+     * Returns a key which orders item stacks like {@link ItemStackComparator}, except that stacks
+     * which only differ by their enchantments share the same key.
+     */
+    public static long sort_key(final ItemStack item_stack) {
+        if (item_stack == null) {
+            return NULL_SORT_KEY;
+        }
+
+        var handle = item_handle(item_stack);
+        if (handle == null) {
+            handle = CraftItemStack.asNMSCopy(item_stack);
+        }
+        if (handle.isEmpty()) {
+            return EMPTY_SORT_KEY;
+        }
+
+        final var item = handle.getItem();
+        final long tab = Math.min(creative_tab_id(item), 62);
+        final long id = Math.min(Item.getId(item), 0xffff);
+        final long damage = Math.clamp(handle.getDamageValue(), 0, 0xffff);
+        final long inverted_count = 0xff - Math.clamp(handle.getCount(), 0, 0xff);
+        return (tab << 40) | (id << 24) | (damage << 8) | inverted_count;
+    }
+
     public static class ItemStackComparator implements Comparator<ItemStack> {
 
         @Override
         public int compare(final ItemStack a, final ItemStack b) {
-            if (a == null && b == null) {
+            final var key_a = sort_key(a);
+            final var key_b = sort_key(b);
+            if (key_a != key_b) {
+                return Long.compare(key_a, key_b);
+            }
+
+            if (key_a == EMPTY_SORT_KEY || key_a == NULL_SORT_KEY) {
                 return 0;
-            } else if (a == null) {
-                return 1;
-            } else if (b == null) {
-                return -1;
             }
 
-            final var na = item_handle(a);
-            final var nb = item_handle(b);
-            if (na.isEmpty()) {
-                return nb.isEmpty() ? 0 : 1;
-            } else if (nb.isEmpty()) {
-                return -1;
+            // By enchantments
+            return compare_enchantments(a, b);
+        }
+    }
+
+    /**
+     * Sorts item stacks in the same order as {@link ItemStackComparator}, but extracts the sort key
+     * of each stack only once and sorts the keys as primitives. Only runs of stacks with equal keys
+     * need to be compared by their enchantments. Instances reuse their buffers, so a single sorter
+     * should be used to sort many inventories at once. Not thread-safe.
+     */
+    public static class ItemStackSorter {
+
+        // The lowest bits of each sort entry hold the original index of the stack
+        private static final int INDEX_BITS = 10;
+        private static final int MAX_LENGTH = 1 << INDEX_BITS;
+
+        private long[] entries = new long[64];
+        private ItemStack[] sorted = new ItemStack[64];
+
+        public void sort(final ItemStack[] item_stacks) {
+            final var n = item_stacks.length;
+            if (n > MAX_LENGTH) {
+                Arrays.sort(item_stacks, new ItemStackComparator());
+                return;
             }
 
-            // By creative mode tab
-            final var creative_mode_tab_diff = creative_tab_id(na) - creative_tab_id(nb);
-            if (creative_mode_tab_diff != 0) {
-                return creative_mode_tab_diff;
+            if (entries.length < n) {
+                entries = new long[n];
+                sorted = new ItemStack[n];
             }
 
-            // By id
-            final var id_diff = Item.getId(na.getItem()) - Item.getId(nb.getItem());
-            if (id_diff != 0) {
-                return id_diff;
+            for (int i = 0; i < n; ++i) {
+                entries[i] = (sort_key(item_stacks[i]) << INDEX_BITS) | i;
             }
 
-            // By damage
-            final var damage_diff = na.getDamageValue() - nb.getDamageValue();
-            if (damage_diff != 0) {
-                return damage_diff;
+            Arrays.sort(entries, 0, n);
+            for (int i = 0; i < n; ++i) {
+                sorted[i] = item_stacks[(int) (entries[i] & (MAX_LENGTH - 1))];
             }
 
-            // By count
-            final var count_diff = nb.getCount() - na.getCount();
-            if (count_diff != 0) {
-                return count_diff;
+            // Sort each run of equal keys by enchantments
+            final var enchantment_order = (Comparator<ItemStack>) ItemUtil::compare_enchantments;
+            int run_begin = 0;
+            for (int i = 1; i <= n; ++i) {
+                if (i < n && entries[i] >>> INDEX_BITS == entries[run_begin] >>> INDEX_BITS) {
+                    continue;
+                }
+
+                final var key = entries[run_begin] >>> INDEX_BITS;
+                if (i - run_begin > 1 && key != EMPTY_SORT_KEY && key != NULL_SORT_KEY) {
+                    Arrays.sort(sorted, run_begin, i, enchantment_order);
+                }
+                run_begin = i;
             }
 
-            // By enchantments
-            return compare_enchantments(a, b);
+            System.arraycopy(sorted, 0, item_stacks, 0, n);
+            Arrays.fill(sorted, 0, n, null);
         }
     }
 
@@ -0,0 +1,184 @@
+package org.oddlama.vane.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map from primitive long keys to objects using open addressing with linear probing.
+ * This avoids boxing keys on every lookup, which matters for hot acceleration structures
+ * keyed by chunk or block coordinates. Not thread-safe. Null values are not supported.
+ */
+public class LongObjectMap<V> {
+
+    @FunctionalInterface
+    public static interface EntryConsumer<V> {
+        public void apply(long key, V value);
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+    private int mask;
+    private int resize_threshold;
+
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectMap(int expected_size) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expected_size / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resize_threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        // Fibonacci hashing spreads sequential coordinates over the table.
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int index_of(long key) {
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return index_of(key) != -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = mix(key) & mask;
+        Object value;
+        while ((value = values[i]) != null) {
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongObjectMap does not support null values");
+        }
+
+        int i = mix(key) & mask;
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                final var old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resize_threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(long key, final LongFunction<V> mapping_function) {
+        var value = get(key);
+        if (value == null) {
+            value = mapping_function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = index_of(key);
+        if (i == -1) {
+            return null;
+        }
+
+        final var old = (V) values[i];
+        --size;
+
+        // Shift back subsequent entries of the probe sequence to close the gap,
+        // so lookups never need tombstones.
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+
+            final int home = mix(keys[j]) & mask;
+            // Move entry j into the gap if its home slot doesn't lie cyclically in (gap, j]
+            if (gap <= j ? (home <= gap || home > j) : (home <= gap && home > j)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+
+        values[gap] = null;
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final EntryConsumer<V> consumer) {
+        final var cur_keys = keys;
+        final var cur_values = values;
+        for (int i = 0; i < cur_values.length; ++i) {
+            if (cur_values[i] != null) {
+                consumer.apply(cur_keys[i], (V) cur_values[i]);
+            }
+        }
+    }
+
+    private void rehash(int new_capacity) {
+        final var old_keys = keys;
+        final var old_values = values;
+        allocate(new_capacity);
+        for (int i = 0; i < old_values.length; ++i) {
+            if (old_values[i] == null) {
+                continue;
+            }
+
+            int j = mix(old_keys[i]) & mask;
+            while (values[j] != null) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = old_keys[i];
+            values[j] = old_values[i];
+        }
+    }
+}
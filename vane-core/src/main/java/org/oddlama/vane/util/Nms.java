@@ -2,6 +2,8 @@ package org.oddlama.vane.util;
 
 import com.mojang.datafixers.DataFixUtils;
 import com.mojang.datafixers.types.Type;
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Map;
 import net.minecraft.SharedConstants;
 import net.minecraft.core.BlockPos;
@@ -20,6 +22,7 @@ import net.minecraft.util.datafix.fixes.References;
 import net.minecraft.world.Clearable;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.item.CreativeModeTab;
 import net.minecraft.world.item.CreativeModeTabs;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
@@ -91,6 +94,20 @@ public class Nms {
         }
     }
 
+    // The handle field of CraftItemStack, looked up once as this is used in hot paths.
+    private static final Field craft_item_stack_handle;
+
+    static {
+        Field handle = null;
+        try {
+            handle = CraftItemStack.class.getDeclaredField("handle");
+            handle.setAccessible(true);
+        } catch (NoSuchFieldException | RuntimeException e) {
+            handle = null;
+        }
+        craft_item_stack_handle = handle;
+    }
+
     public static ItemStack item_handle(org.bukkit.inventory.ItemStack item_stack) {
         if (item_stack == null) {
             return null;
@@ -100,11 +117,13 @@ public class Nms {
             return CraftItemStack.asNMSCopy(item_stack);
         }
 
+        if (craft_item_stack_handle == null) {
+            return null;
+        }
+
         try {
-            final var handle = CraftItemStack.class.getDeclaredField("handle");
-            handle.setAccessible(true);
-            return (ItemStack) handle.get(item_stack);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return (ItemStack) craft_item_stack_handle.get(item_stack);
+        } catch (IllegalAccessException e) {
             return null;
         }
     }
@@ -161,9 +180,50 @@ public class Nms {
         return player_handle(player).awardRecipes(recipes);
     }
 
+    // Index of the first creative mode tab containing each item (item id → tab index).
+    // Built once on first use, as scanning the tabs for every comparison is expensive.
+    private static int[] creative_tab_index_by_item_id = null;
+    // Index given to items that aren't in any category tab
+    private static int creative_tab_none = 0;
+
+    private static int[] build_creative_tab_index() {
+        final var server = server_handle();
+        CreativeModeTabs.tryRebuildTabContents(server.getWorldData().enabledFeatures(), false, server.registryAccess());
+
+        // Only category tabs. The search tab contains every item, and hotbar and inventory are special.
+        final var tabs = CreativeModeTabs.allTabs()
+            .stream()
+            .filter(tab -> tab.getType() == CreativeModeTab.Type.CATEGORY)
+            .toList();
+        final var index = new int[BuiltInRegistries.ITEM.size()];
+        // Items that aren't in any tab are sorted after all others
+        creative_tab_none = tabs.size();
+        Arrays.fill(index, creative_tab_none);
+        for (int i = tabs.size() - 1; i >= 0; --i) {
+            for (final var stack : tabs.get(i).getDisplayItems()) {
+                final var id = Item.getId(stack.getItem());
+                if (id >= 0 && id < index.length) {
+                    index[id] = i;
+                }
+            }
+        }
+        return index;
+    }
+
+    public static int creative_tab_id(final Item item) {
+        if (creative_tab_index_by_item_id == null) {
+            creative_tab_index_by_item_id = build_creative_tab_index();
+        }
+
+        final var id = Item.getId(item);
+        if (id < 0 || id >= creative_tab_index_by_item_id.length) {
+            return creative_tab_none;
+        }
+        return creative_tab_index_by_item_id[id];
+    }
+
     public static int creative_tab_id(final ItemStack item_stack) {
-        // TODO FIXME BUG this is broken and always returns 0
-        return (int) CreativeModeTabs.allTabs().stream().takeWhile(tab -> tab.contains(item_stack)).count();
+        return creative_tab_id(item_stack.getItem());
     }
 
     public static void set_air_no_drops(final org.bukkit.block.Block block) {
@@ -3,8 +3,7 @@ package org.oddlama.vane.enchantments.enchantments;
 import java.util.List;
 import org.bukkit.Material;
 import org.bukkit.Particle;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
+import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.loot.LootTables;
 import org.oddlama.vane.annotation.config.ConfigDouble;
@@ -16,6 +15,7 @@ import org.oddlama.vane.core.config.loot.LootTableList;
 import org.oddlama.vane.core.config.recipes.RecipeList;
 import org.oddlama.vane.core.config.recipes.ShapedRecipeDefinition;
 import org.oddlama.vane.core.enchantments.CustomEnchantment;
+import org.oddlama.vane.core.functional.Consumer2;
 import org.oddlama.vane.core.module.Context;
 import org.oddlama.vane.enchantments.Enchantments;
 
@@ -37,10 +37,24 @@ public class Angel extends CustomEnchantment<Enchantments> {
     )
     private List<Double> config_speed;
 
+    private final Consumer2<Player, PlayerMoveEvent> on_gliding_move = this::on_player_gliding_move;
+
     public Angel(Context<Enchantments> context) {
         super(context);
     }
 
+    @Override
+    protected void on_enable() {
+        super.on_enable();
+        get_module().core.movement_dispatcher.subscribe_gliding_move(on_gliding_move);
+    }
+
+    @Override
+    protected void on_disable() {
+        get_module().core.movement_dispatcher.unsubscribe(on_gliding_move);
+        super.on_disable();
+    }
+
     @Override
     public RecipeList default_recipes() {
         return RecipeList.of(
@@ -76,11 +90,9 @@ public class Angel extends CustomEnchantment<Enchantments> {
         return config_speed.get(0);
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void on_player_move(final PlayerMoveEvent event) {
-        // Check sneaking and flying
-        final var player = event.getPlayer();
-        if (!player.isSneaking() || !player.isGliding()) {
+    private void on_player_gliding_move(final Player player, final PlayerMoveEvent event) {
+        // Check sneaking, gliding was already checked by the dispatcher
+        if (!player.isSneaking()) {
             return;
         }
 
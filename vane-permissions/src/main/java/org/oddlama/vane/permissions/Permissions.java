@@ -1,9 +1,10 @@
 package org.oddlama.vane.permissions;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -17,6 +18,7 @@ import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.RemoteServerCommandEvent;
 import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionAttachment;
 import org.bukkit.permissions.PermissionDefault;
 import org.oddlama.vane.annotation.VaneModule;
@@ -83,6 +85,8 @@ public class Permissions extends Module<Permissions> {
 
     // Variables
     public final Map<String, Set<String>> permission_groups = new HashMap<>();
+    // group → registered permission that has all permissions of the group as children
+    private final Map<String, Permission> compiled_groups = new HashMap<>();
     private final Map<UUID, PermissionAttachment> player_attachments = new HashMap<>();
 
     public Permissions() {
@@ -105,9 +109,28 @@ public class Permissions extends Module<Permissions> {
         });
     }
 
+    @Override
+    public void on_disable() {
+        compiled_groups.values().forEach(this::unregister_permission);
+        compiled_groups.clear();
+    }
+
     @Override
     public void on_config_change() {
         flatten_groups();
+        final var groups_changed = compile_groups();
+
+        // Apply changed groups to everyone online
+        for (final var player : getServer().getOnlinePlayers()) {
+            if (player_attachments.containsKey(player.getUniqueId())) {
+                if (apply_groups(player) || groups_changed) {
+                    player.updateCommands();
+                }
+            }
+        }
+
+        // Other plugins may register their permissions later
+        schedule_next_tick(this::warn_unregistered_permissions);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -198,6 +221,70 @@ public class Permissions extends Module<Permissions> {
         } while (modified.value);
     }
 
+    /**
+     * Registers one permission per group, which grants all permissions of that group as children.
+     * Players are given these instead of the individual permissions, so attaching a group costs a
+     * single permission recalculation regardless of its size. Returns true if any group changed.
+     */
+    private boolean compile_groups() {
+        var changed = false;
+
+        // Remove groups that no longer exist
+        final var it = compiled_groups.entrySet().iterator();
+        while (it.hasNext()) {
+            final var entry = it.next();
+            if (!permission_groups.containsKey(entry.getKey())) {
+                unregister_permission(entry.getValue());
+                it.remove();
+                changed = true;
+            }
+        }
+
+        for (final var entry : permission_groups.entrySet()) {
+            final var group = entry.getKey();
+            final var children = new LinkedHashMap<String, Boolean>();
+            entry.getValue().stream().sorted().forEach(p -> children.put(p, true));
+
+            final var permission = compiled_groups.get(group);
+            if (permission == null) {
+                final var name = "vane.permissions.groups." + group;
+                final var existing = getServer().getPluginManager().getPermission(name);
+                if (existing != null) {
+                    // Left over from a previous instance of this plugin
+                    unregister_permission(existing);
+                }
+
+                final var compiled = new Permission(
+                    name,
+                    "Grants all permissions of the permission group '" + group + "'",
+                    PermissionDefault.FALSE,
+                    children
+                );
+                register_permission(compiled);
+                compiled_groups.put(group, compiled);
+                changed = true;
+            } else if (!permission.getChildren().equals(children)) {
+                permission.getChildren().clear();
+                permission.getChildren().putAll(children);
+                permission.recalculatePermissibles();
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    private void warn_unregistered_permissions() {
+        final var warned = new HashSet<String>();
+        for (final var perms : permission_groups.values()) {
+            for (final var p : perms) {
+                if (getServer().getPluginManager().getPermission(p) == null && warned.add(p)) {
+                    log.warning("Use of unregistered permission '" + p + "' might have unintended effects.");
+                }
+            }
+        }
+    }
+
     private void register_player(final Player player) {
         // Register PermissionAttachment
         final var attachment = player.addAttachment(this);
@@ -207,31 +294,45 @@ public class Permissions extends Module<Permissions> {
         recalculate_player_permissions(player);
     }
 
-    public void recalculate_player_permissions(final Player player) {
-        // Clear attachment
+    // Brings the player's attachment in line with the player's groups. Only the differences
+    // are applied, as each change recalculates all permissions of the player.
+    // Returns true if anything changed.
+    private boolean apply_groups(final Player player) {
         final var attachment = player_attachments.get(player.getUniqueId());
-        final var attached_perms = attachment.getPermissions();
-        attached_perms.forEach((p, v) -> attachment.unsetPermission(p));
-
-        // Add permissions again
         var groups = storage_player_groups.get(player.getUniqueId());
         if (groups == null || groups.isEmpty()) {
             // Assign player to a default permission group
             groups = Set.of(config_default_group);
         }
 
+        final var wanted = new HashSet<String>();
         for (var group : groups) {
-            for (var p : permission_groups.getOrDefault(group, Collections.emptySet())) {
-                final var perm = getServer().getPluginManager().getPermission(p);
-                if (perm == null) {
-                    log.warning("Use of unregistered permission '" + p + "' might have unintended effects.");
-                }
-                attachment.setPermission(p, true);
+            final var permission = compiled_groups.get(group);
+            if (permission != null) {
+                // Attachments store permission names in lower case
+                wanted.add(permission.getName().toLowerCase(Locale.ENGLISH));
+            }
+        }
+
+        var changed = false;
+        for (final var p : attachment.getPermissions().keySet()) {
+            if (!wanted.remove(p)) {
+                attachment.unsetPermission(p);
+                changed = true;
             }
         }
+        for (final var p : wanted) {
+            attachment.setPermission(p, true);
+            changed = true;
+        }
+        return changed;
+    }
 
-        // Update list of commands for client side root tab completion
-        player.updateCommands();
+    public void recalculate_player_permissions(final Player player) {
+        if (apply_groups(player)) {
+            // Update list of commands for client side root tab completion
+            player.updateCommands();
+        }
     }
 
     private void unregister_player(final Player player) {
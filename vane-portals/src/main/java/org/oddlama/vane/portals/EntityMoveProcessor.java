@@ -1,20 +1,39 @@
 package org.oddlama.vane.portals;
 
-import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.UUID;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.scheduler.BukkitTask;
+import org.oddlama.vane.annotation.config.ConfigBoolean;
+import org.oddlama.vane.annotation.config.ConfigInt;
 import org.oddlama.vane.core.module.Context;
 import org.oddlama.vane.core.module.ModuleComponent;
 import org.oddlama.vane.portals.event.EntityMoveEvent;
+import org.oddlama.vane.portals.portal.PortalBlock;
 
 public class EntityMoveProcessor extends ModuleComponent<Portals> {
 
+    @ConfigBoolean(
+        def = true,
+        desc = "Only detect movement of entities near activated portals instead of scanning every entity in each world that has an activated portal. Strongly recommended for worlds with many entities."
+    )
+    public boolean config_near_portals_only;
+
+    @ConfigInt(
+        def = 8,
+        min = 3,
+        max = 64,
+        desc = "Margin in blocks by which the bounding box of an activated portal's area is inflated to determine which entities are tracked. Only used when near_portals_only is enabled."
+    )
+    public int config_portal_margin;
+
     // This is the queue of entity move events that need processing.
     // It is a linked hash map, so we can update moved entity positions
     // without changing iteration order. Processed entries will be removed from
@@ -24,9 +43,18 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
     // This stores entity_id -> (entity, old location).
     private LinkedHashMap<UUID, Pair<Entity, Location>> move_event_processing_queue = new LinkedHashMap<>();
 
-    // Two hash maps to store old and current positions for each entity.
-    private HashMap<UUID, Pair<Entity, Location>> move_event_current_positions = new HashMap<>();
-    private HashMap<UUID, Pair<Entity, Location>> move_event_old_positions = new HashMap<>();
+    // The last observed position of each tracked entity. Entries are updated in-place
+    // and dropped as soon as an entity wasn't observed in a tick.
+    private HashMap<UUID, TrackedPosition> tracked_positions = new HashMap<>();
+    // Incremented each tick, used to detect entities that are no longer tracked.
+    private long detection_tick = 0;
+    // Reused to read entity locations without allocating.
+    private final Location scratch_location = new Location(null, 0.0, 0.0, 0.0);
+
+    // Cached tracking areas for all activated portals. Rebuilt whenever
+    // the portal index generation of the module changes.
+    private List<TrackingArea> tracking_areas = new ArrayList<>();
+    private long tracking_areas_generation = -1;
 
     private BukkitTask task;
 
@@ -35,19 +63,108 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
     private static final long move_event_max_nanoseconds_per_tick = 15000000l;
 
     public EntityMoveProcessor(Context<Portals> context) {
-        super(context);
+        super(
+            context.namespace(
+                "entity_movement",
+                "Settings for the entity movement detection, which is used to teleport entities through portals."
+            )
+        );
     }
 
-    private static boolean is_movement(final Location l1, final Location l2) {
-        // Different worlds = not a movement event.
-        return (
-            l1.getWorld() == l2.getWorld() &&
-            (l1.getX() != l2.getX() ||
-                l1.getY() != l2.getY() ||
-                l1.getZ() != l2.getZ() ||
-                l1.getPitch() != l2.getPitch() ||
-                l1.getYaw() != l2.getYaw())
-        );
+    private void update_tracking_areas() {
+        final var generation = get_module().portal_index_generation();
+        if (generation == tracking_areas_generation) {
+            return;
+        }
+
+        tracking_areas_generation = generation;
+        tracking_areas.clear();
+        for (final var portal : get_module().activated_portals()) {
+            TrackingArea area = null;
+            for (final var portal_block : portal.blocks()) {
+                if (portal_block.type() != PortalBlock.Type.PORTAL) {
+                    continue;
+                }
+
+                final var block = portal_block.block();
+                if (area == null) {
+                    area = new TrackingArea(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+                } else {
+                    area.include(block.getX(), block.getY(), block.getZ());
+                }
+            }
+
+            if (area != null) {
+                area.inflate(config_portal_margin);
+                tracking_areas.add(area);
+            }
+        }
+    }
+
+    private void observe(final Entity entity) {
+        final var entity_id = entity.getUniqueId();
+        final var loc = entity.getLocation(scratch_location);
+        final var tracked = tracked_positions.get(entity_id);
+        if (tracked == null) {
+            tracked_positions.put(entity_id, new TrackedPosition(entity, loc, detection_tick));
+            return;
+        }
+
+        if (tracked.seen_tick == detection_tick) {
+            // Already observed via an overlapping tracking area
+            return;
+        }
+
+        // If the processing queue already contained the entity, there is nothing
+        // to do - we simply lose information about the intermediate position.
+        if (tracked.is_movement(loc) && !move_event_processing_queue.containsKey(entity_id)) {
+            move_event_processing_queue.put(entity_id, Pair.of(tracked.entity, tracked.to_location()));
+        }
+
+        tracked.update(entity, loc, detection_tick);
+    }
+
+    private void detect_movements_near_portals() {
+        update_tracking_areas();
+
+        final var server = get_module().getServer();
+        for (final var area : tracking_areas) {
+            final var world = server.getWorld(area.world_id);
+            if (world == null) {
+                continue;
+            }
+
+            // Only visit chunks that are already loaded, we never want to load them here.
+            for (int cx = area.min_x >> 4; cx <= area.max_x >> 4; ++cx) {
+                for (int cz = area.min_z >> 4; cz <= area.max_z >> 4; ++cz) {
+                    if (!world.isChunkLoaded(cx, cz)) {
+                        continue;
+                    }
+
+                    for (final var entity : world.getChunkAt(cx, cz).getEntities()) {
+                        if (area.contains(entity.getLocation(scratch_location))) {
+                            observe(entity);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void detect_movements_in_worlds() {
+        final var active_portal_worlds = new HashSet<UUID>();
+        for (final var portal : get_module().activated_portals()) {
+            active_portal_worlds.add(portal.spawn_world());
+        }
+
+        for (final var world_id : active_portal_worlds) {
+            final var world = get_module().getServer().getWorld(world_id);
+            if (world != null) {
+                for (final var entity : world.getEntities()) {
+                    observe(entity);
+                }
+            }
+        }
     }
 
     private void process_entity_movements() {
@@ -74,51 +191,18 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
         // Phase 1 - Movement detection
         // --------------------------------------------
 
-        final var active_portal_worlds = new HashSet<UUID>();
-        for (final var portal : get_module().all_available_portals()) {
-            if (get_module().is_activated(portal)) {
-                active_portal_worlds.add(portal.spawn_world());
-            }
+        // Compare the current position of each observed entity to the position
+        // we saw in the previous tick. Entities that weren't observed in the previous
+        // tick only get their position recorded, as we need two positions to detect a movement.
+        ++detection_tick;
+        if (config_near_portals_only) {
+            detect_movements_near_portals();
+        } else {
+            detect_movements_in_worlds();
         }
 
-        // Store current positions for each entity
-        for (final var world_id : active_portal_worlds) {
-            final var world = get_module().getServer().getWorld(world_id);
-            if (world != null) {
-                for (final var entity : world.getEntities()) {
-                    move_event_current_positions.put(entity.getUniqueId(), Pair.of(entity, entity.getLocation()));
-                }
-            }
-        }
-
-        // For each entity that has an old position (computed efficiently via Sets.intersection),
-        // but isn't yet contained in the entities to process, we check whether the position
-        // has changed. If so, we add the entity to the processing queue.
-        // If the processing queue already contained the entity, we remove it before iterating
-        // as there is nothing to do - we simply lose information about the intermediate position.
-        for (final var eid : Sets.difference(
-            Sets.intersection(move_event_old_positions.keySet(), move_event_current_positions.keySet()),
-            move_event_processing_queue.keySet()
-        )) {
-            final var old_entity_and_loc = move_event_old_positions.get(eid);
-            final var new_entity_and_loc = move_event_current_positions.get(eid);
-            if (
-                old_entity_and_loc == null ||
-                new_entity_and_loc == null ||
-                !is_movement(old_entity_and_loc.getRight(), new_entity_and_loc.getRight())
-            ) {
-                continue;
-            }
-
-            move_event_processing_queue.put(eid, Pair.of(old_entity_and_loc));
-        }
-
-        // Swap old and current position hash maps, and only retain the now-old positions.
-        // This avoids unnecessary allocations.
-        final var tmp = move_event_current_positions;
-        move_event_current_positions = move_event_old_positions;
-        move_event_old_positions = tmp;
-        move_event_current_positions.clear();
+        // Forget all entities that weren't observed in this tick.
+        tracked_positions.values().removeIf(tracked -> tracked.seen_tick != detection_tick);
 
         // Phase 2 - Event dispatching
         // --------------------------------------------
@@ -143,6 +227,12 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
         }
     }
 
+    @Override
+    protected void on_config_change() {
+        // Force the tracking areas to be rebuilt, the margin might have changed.
+        tracking_areas_generation = -1;
+    }
+
     @Override
     protected void on_enable() {
         // Each tick we need to recalculate whether entities moved.
@@ -154,5 +244,97 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
     @Override
     protected void on_disable() {
         task.cancel();
+        tracked_positions.clear();
+        tracking_areas.clear();
+        tracking_areas_generation = -1;
+    }
+
+    // The last observed position of an entity, stored as primitives so that
+    // tracking doesn't need to allocate a Location per entity and tick.
+    private static class TrackedPosition {
+
+        private Entity entity;
+        private World world;
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private float pitch;
+        private long seen_tick;
+
+        public TrackedPosition(final Entity entity, final Location loc, long seen_tick) {
+            update(entity, loc, seen_tick);
+        }
+
+        public void update(final Entity entity, final Location loc, long seen_tick) {
+            this.entity = entity;
+            this.world = loc.getWorld();
+            this.x = loc.getX();
+            this.y = loc.getY();
+            this.z = loc.getZ();
+            this.yaw = loc.getYaw();
+            this.pitch = loc.getPitch();
+            this.seen_tick = seen_tick;
+        }
+
+        public boolean is_movement(final Location loc) {
+            // Different worlds = not a movement event.
+            return (
+                world == loc.getWorld() &&
+                (x != loc.getX() ||
+                    y != loc.getY() ||
+                    z != loc.getZ() ||
+                    pitch != loc.getPitch() ||
+                    yaw != loc.getYaw())
+            );
+        }
+
+        public Location to_location() {
+            return new Location(world, x, y, z, yaw, pitch);
+        }
+    }
+
+    // The inflated block bounding box of an activated portal's area.
+    private static class TrackingArea {
+
+        private final UUID world_id;
+        private int min_x;
+        private int min_y;
+        private int min_z;
+        private int max_x;
+        private int max_y;
+        private int max_z;
+
+        public TrackingArea(final UUID world_id, int x, int y, int z) {
+            this.world_id = world_id;
+            this.min_x = this.max_x = x;
+            this.min_y = this.max_y = y;
+            this.min_z = this.max_z = z;
+        }
+
+        public void include(int x, int y, int z) {
+            min_x = Math.min(min_x, x);
+            min_y = Math.min(min_y, y);
+            min_z = Math.min(min_z, z);
+            max_x = Math.max(max_x, x);
+            max_y = Math.max(max_y, y);
+            max_z = Math.max(max_z, z);
+        }
+
+        public void inflate(int margin) {
+            min_x -= margin;
+            min_y -= margin;
+            min_z -= margin;
+            max_x += margin;
+            max_y += margin;
+            max_z += margin;
+        }
+
+        public boolean contains(final Location loc) {
+            final var x = loc.getBlockX();
+            final var y = loc.getBlockY();
+            final var z = loc.getBlockZ();
+            return x >= min_x && x <= max_x && y >= min_y && y <= max_y && z >= min_z && z <= max_z;
+        }
     }
 }
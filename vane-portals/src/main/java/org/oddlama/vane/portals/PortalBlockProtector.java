@@ -10,6 +10,7 @@ import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.oddlama.vane.core.Listener;
 import org.oddlama.vane.core.module.Context;
+import org.oddlama.vane.util.BlockSetQuery;
 
 public class PortalBlockProtector extends Listener<Portals> {
 
@@ -36,7 +37,7 @@ public class PortalBlockProtector extends Listener<Portals> {
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void on_entity_explode(final EntityExplodeEvent event) {
         // Prevent explosions from removing portal blocks
-        event.blockList().removeIf(block -> get_module().is_portal_block(block));
+        BlockSetQuery.of(event, event.blockList()).remove_matching(get_module()::portal_blocks_in_chunk);
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
@@ -50,22 +51,16 @@ public class PortalBlockProtector extends Listener<Portals> {
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void on_block_piston_extend(final BlockPistonExtendEvent event) {
         // Prevent pistons from moving portal blocks
-        for (final var block : event.getBlocks()) {
-            if (get_module().is_portal_block(block)) {
-                event.setCancelled(true);
-                return;
-            }
+        if (BlockSetQuery.of(event, event.getBlocks()).any_match(get_module()::portal_blocks_in_chunk)) {
+            event.setCancelled(true);
         }
     }
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void on_block_piston_retract(final BlockPistonRetractEvent event) {
         // Prevent pistons from moving portal blocks
-        for (final var block : event.getBlocks()) {
-            if (get_module().is_portal_block(block)) {
-                event.setCancelled(true);
-                return;
-            }
+        if (BlockSetQuery.of(event, event.getBlocks()).any_match(get_module()::portal_blocks_in_chunk)) {
+            event.setCancelled(true);
         }
     }
 }
@@ -0,0 +1,260 @@
+package org.oddlama.vane.portals;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.bukkit.entity.Player;
+import org.oddlama.vane.portals.portal.Portal;
+
+/**
+ * Index of all portals grouped by world, together with a cache of the portals each player is
+ * allowed to select as a target. The cache of a player is rebuilt only after any portal or (via
+ * the regions integration) any region has changed. Target lists are sorted lazily, so showing
+ * the first page of the nearest targets doesn't require sorting all portals.
+ */
+public class PortalTargetIndex {
+
+    private final Portals portals;
+
+    // Incremented whenever a portal is added, removed or changed.
+    private long generation = 0;
+    // The generations from which the current index was built.
+    private long indexed_generation = -1;
+    private long indexed_region_generation = -1;
+
+    // world_id → all portals in that world, except GROUP_INTERNAL portals.
+    private final Map<UUID, List<Target>> portals_by_world = new HashMap<>();
+    // world_id → all GROUP_INTERNAL portals in that world. These depend on the
+    // source portal instead of the player and are therefore checked on each query.
+    private final Map<UUID, List<Target>> group_internal_portals_by_world = new HashMap<>();
+    // player_id → world_id → portals visible to that player.
+    private final Map<UUID, Map<UUID, List<Target>>> visible_portals_by_player = new HashMap<>();
+
+    public PortalTargetIndex(final Portals portals) {
+        this.portals = portals;
+    }
+
+    /** Must be called whenever a portal is added, removed or changed. */
+    public void invalidate() {
+        ++generation;
+    }
+
+    /** Drops the cached visible portals of the given player, e.g. when the player quits. */
+    public void forget_player(final Player player) {
+        visible_portals_by_player.remove(player.getUniqueId());
+    }
+
+    private void update_index(final Iterable<Portal> all_portals) {
+        final var region_generation = portals.region_generation();
+        if (indexed_generation == generation && indexed_region_generation == region_generation) {
+            return;
+        }
+
+        // Visibility may have changed for any player
+        visible_portals_by_player.clear();
+        indexed_region_generation = region_generation;
+        if (indexed_generation == generation) {
+            return;
+        }
+
+        indexed_generation = generation;
+        portals_by_world.clear();
+        group_internal_portals_by_world.clear();
+        for (final var portal : all_portals) {
+            final var spawn = portal.spawn();
+            final var target = new Target(portal, spawn.getX(), spawn.getZ());
+            final var by_world = portal.visibility() == Portal.Visibility.GROUP_INTERNAL
+                ? group_internal_portals_by_world
+                : portals_by_world;
+            by_world.computeIfAbsent(portal.spawn_world(), k -> new ArrayList<>()).add(target);
+        }
+    }
+
+    private boolean is_visible(final Player player, final Portal portal) {
+        return switch (portal.visibility()) {
+            case PUBLIC -> true;
+            case GROUP -> portals.player_can_use_portals_in_region_group_of(player, portal);
+            case PRIVATE -> player.getUniqueId().equals(portal.owner());
+            case GROUP_INTERNAL -> false;
+        };
+    }
+
+    private Map<UUID, List<Target>> visible_portals(final Player player) {
+        return visible_portals_by_player.computeIfAbsent(player.getUniqueId(), k -> {
+            final var visible = new HashMap<UUID, List<Target>>();
+            portals_by_world.forEach((world_id, targets) -> {
+                final var visible_in_world = new ArrayList<Target>();
+                for (final var target : targets) {
+                    if (is_visible(player, target.portal)) {
+                        visible_in_world.add(target);
+                    }
+                }
+                visible.put(world_id, visible_in_world);
+            });
+            return visible;
+        });
+    }
+
+    private void collect_targets(
+        final UUID world_id,
+        final Player player,
+        final Portal source,
+        final List<Target> into
+    ) {
+        final var visible = visible_portals(player).get(world_id);
+        if (visible != null) {
+            for (final var target : visible) {
+                if (target.portal != source) {
+                    into.add(target);
+                }
+            }
+        }
+
+        final var group_internal = group_internal_portals_by_world.get(world_id);
+        if (group_internal != null) {
+            for (final var target : group_internal) {
+                if (target.portal != source && portals.is_in_same_region_group(source, target.portal)) {
+                    into.add(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns all portals the given player may select as a target of the source portal. Portals in
+     * the player's world come first ordered by their horizontal distance to the player, followed by
+     * portals in other loaded worlds ordered by name.
+     */
+    public List<Portal> targets_for(final Player player, final Portal source, final Iterable<Portal> all_portals) {
+        update_index(all_portals);
+
+        final var player_loc = player.getLocation();
+        final var player_world_id = player_loc.getWorld().getUID();
+        final var same_world = new ArrayList<Target>();
+        collect_targets(player_world_id, player, source, same_world);
+
+        final var other_worlds = new ArrayList<Target>();
+        final var world_ids = new ArrayList<UUID>(portals_by_world.keySet());
+        for (final var world_id : group_internal_portals_by_world.keySet()) {
+            if (!portals_by_world.containsKey(world_id)) {
+                world_ids.add(world_id);
+            }
+        }
+        for (final var world_id : world_ids) {
+            if (world_id.equals(player_world_id) || portals.getServer().getWorld(world_id) == null) {
+                continue;
+            }
+            collect_targets(world_id, player, source, other_worlds);
+        }
+
+        return new TargetList(same_world, player_loc.getX(), player_loc.getZ(), other_worlds);
+    }
+
+    private static record Target(Portal portal, double x, double z) {}
+
+    /**
+     * A list of targets that sorts its elements on access. Targets in the same world are kept in a
+     * binary heap keyed by distance and are only popped as far as they are accessed. Targets in
+     * other worlds are sorted by name the first time any of them is accessed.
+     */
+    private static class TargetList extends AbstractList<Portal> {
+
+        private final Portal[] same_world;
+        private final double[] distance_sq;
+        // Heap of indices into same_world, occupying heap[0, heap_size)
+        private final int[] heap;
+        private int heap_size;
+        // All targets popped from the heap so far, in order of increasing distance
+        private final Portal[] sorted_same_world;
+        private int popped = 0;
+
+        private final List<Target> other_worlds;
+        private boolean other_worlds_sorted = false;
+
+        public TargetList(final List<Target> same_world, double x, double z, final List<Target> other_worlds) {
+            final var n = same_world.size();
+            this.same_world = new Portal[n];
+            this.distance_sq = new double[n];
+            this.heap = new int[n];
+            this.sorted_same_world = new Portal[n];
+            for (int i = 0; i < n; ++i) {
+                final var target = same_world.get(i);
+                final var dx = target.x - x;
+                final var dz = target.z - z;
+                this.same_world[i] = target.portal;
+                this.distance_sq[i] = dx * dx + dz * dz;
+                this.heap[i] = i;
+            }
+
+            heap_size = n;
+            for (int i = n / 2 - 1; i >= 0; --i) {
+                sift_down(i);
+            }
+
+            this.other_worlds = other_worlds;
+        }
+
+        private void sift_down(int i) {
+            final var element = heap[i];
+            final var key = distance_sq[element];
+            while (true) {
+                var child = 2 * i + 1;
+                if (child >= heap_size) {
+                    break;
+                }
+                if (child + 1 < heap_size && distance_sq[heap[child + 1]] < distance_sq[heap[child]]) {
+                    ++child;
+                }
+                if (distance_sq[heap[child]] >= key) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = element;
+        }
+
+        private Portal nearest(int index) {
+            while (popped <= index) {
+                sorted_same_world[popped++] = same_world[heap[0]];
+                heap[0] = heap[--heap_size];
+                if (heap_size > 0) {
+                    sift_down(0);
+                }
+            }
+            return sorted_same_world[index];
+        }
+
+        private Portal other_world(int index) {
+            if (!other_worlds_sorted) {
+                final var targets = other_worlds.toArray(new Target[0]);
+                Arrays.sort(targets, (a, b) -> a.portal.name().compareToIgnoreCase(b.portal.name()));
+                for (int i = 0; i < targets.length; ++i) {
+                    other_worlds.set(i, targets[i]);
+                }
+                other_worlds_sorted = true;
+            }
+            return other_worlds.get(index).portal;
+        }
+
+        @Override
+        public Portal get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            if (index < same_world.length) {
+                return nearest(index);
+            }
+            return other_world(index - same_world.length);
+        }
+
+        @Override
+        public int size() {
+            return same_world.length + other_worlds.size();
+        }
+    }
+}
@@ -7,22 +7,22 @@ import static org.oddlama.vane.util.Nms.item_handle;
 import static org.oddlama.vane.util.Nms.register_entity;
 import static org.oddlama.vane.util.Nms.spawn;
 
-import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import net.kyori.adventure.text.Component;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.MobCategory;
-import org.apache.commons.lang.StringUtils;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -34,6 +34,7 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
@@ -46,7 +47,6 @@ import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.json.JSONObject;
 import org.oddlama.vane.annotation.VaneModule;
 import org.oddlama.vane.annotation.config.ConfigDouble;
 import org.oddlama.vane.annotation.config.ConfigExtendedMaterial;
@@ -64,6 +64,7 @@ import org.oddlama.vane.core.lang.TranslatedMessage;
 import org.oddlama.vane.core.material.ExtendedMaterial;
 import org.oddlama.vane.core.module.Module;
 import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.WorldStorageJournal;
 import org.oddlama.vane.portals.entity.FloatingItem;
 import org.oddlama.vane.portals.menu.PortalMenuGroup;
 import org.oddlama.vane.portals.menu.PortalMenuTag;
@@ -72,6 +73,8 @@ import org.oddlama.vane.portals.portal.Portal;
 import org.oddlama.vane.portals.portal.PortalBlock;
 import org.oddlama.vane.portals.portal.PortalBlockLookup;
 import org.oddlama.vane.portals.portal.Style;
+import org.oddlama.vane.util.BlockSetQuery;
+import org.oddlama.vane.util.LongObjectMap;
 import org.oddlama.vane.util.StorageUtil;
 
 @VaneModule(name = "portals", bstats = 8642, config_version = 3, lang_version = 6, storage_version = 2)
@@ -92,6 +95,10 @@ public class Portals extends Module<Portals> {
         PersistentSerializer.deserializers.put(PortalBlockLookup.class, PortalBlockLookup::deserialize);
         PersistentSerializer.serializers.put(Style.class, Style::serialize);
         PersistentSerializer.deserializers.put(Style.class, Style::deserialize);
+        PersistentSerializer.binary_serializers.put(Portal.class, Portal::serialize_binary);
+        PersistentSerializer.binary_deserializers.put(Portal.class, Portal::deserialize_binary);
+        PersistentSerializer.binary_serializers.put(PortalBlock.class, PortalBlock::serialize_binary);
+        PersistentSerializer.binary_deserializers.put(PortalBlock.class, PortalBlock::deserialize_binary);
     }
 
     @ConfigMaterialSet(
@@ -230,9 +237,16 @@ public class Portals extends Module<Portals> {
     private Map<UUID, Portal> storage_portals = new HashMap<>();
 
     private Map<UUID, Portal> portals = new HashMap<>();
+    // Tracks which portals are stored in each world and which need to be written or removed on the next save.
+    private final WorldStorageJournal storage_journal = new WorldStorageJournal();
 
     // Index for all portal blocks (world_id → chunk key → block key → portal block)
-    private Map<UUID, Map<Long, Map<Long, PortalBlockLookup>>> portal_blocks_in_chunk_in_world = new HashMap<>();
+    // Both levels are keyed by primitive longs to avoid boxing on the hot lookup path.
+    private Map<UUID, LongObjectMap<LongObjectMap<PortalBlockLookup>>> portal_blocks_in_chunk_in_world =
+        new HashMap<>();
+    // Incremented whenever the portal block index changes or portals are (de-)activated,
+    // so that derived acceleration structures know when to rebuild.
+    private long portal_index_generation = 0;
 
     // All loaded styles
     public Map<NamespacedKey, Style> styles = new HashMap<>();
@@ -250,6 +264,7 @@ public class Portals extends Module<Portals> {
     private final Map<UUID, BukkitTask> disable_tasks = new HashMap<>();
 
     public PortalMenuGroup menus;
+    private final PortalTargetIndex target_index = new PortalTargetIndex(this);
     public PortalConstructor constructor;
     public PortalDynmapLayer dynmap_layer;
     public PortalBlueMapLayer blue_map_layer;
@@ -293,8 +308,17 @@ public class Portals extends Module<Portals> {
         );
     }
 
+    private static long block_key(int x, int y, int z) {
+        return (y << 8) | ((x & 0xF) << 4) | ((z & 0xF));
+    }
+
     private static long block_key(final Block block) {
-        return (block.getY() << 8) | ((block.getX() & 0xF) << 4) | ((block.getZ() & 0xF));
+        return block_key(block.getX(), block.getY(), block.getZ());
+    }
+
+    private static long chunk_key(final Block block) {
+        // Computed from coordinates, so we never need to access (or load) the chunk itself.
+        return Chunk.getChunkKey(block.getX() >> 4, block.getZ() >> 4);
     }
 
     private static Block unpack_block_key(final Chunk chunk, long block_key) {
@@ -383,6 +407,20 @@ public class Portals extends Module<Portals> {
         return player_can_use_portals_in_region_group_of_callback.apply(player, portal);
     }
 
+    private LongSupplier region_generation_callback = null;
+
+    public void set_region_generation_callback(final LongSupplier callback) {
+        region_generation_callback = callback;
+    }
+
+    /** Returns a value that changes whenever regions change in a way that may affect portal visibility. */
+    public long region_generation() {
+        if (region_generation_callback == null) {
+            return 0;
+        }
+        return region_generation_callback.getAsLong();
+    }
+
     public boolean is_regions_installed() {
         return is_in_same_region_group_callback != null;
     }
@@ -409,6 +447,9 @@ public class Portals extends Module<Portals> {
             // Was already removed
             return;
         }
+        portal.invalidation_listener(null);
+        storage_journal.mark_deleted(portal.spawn_world(), portal.id());
+        target_index.invalidate();
 
         // Remove portal blocks
         portal.blocks().forEach(this::remove_portal_block);
@@ -453,10 +494,9 @@ public class Portals extends Module<Portals> {
     }
 
     public void add_new_portal(final Portal portal) {
-        portal.invalidated = true;
-
         // Index the new portal
         index_portal(portal);
+        portal.invalidate();
 
         // Play sound
         portal
@@ -467,12 +507,25 @@ public class Portals extends Module<Portals> {
 
     public void index_portal(final Portal portal) {
         portals.put(portal.id(), portal);
+        portal.invalidation_listener(p -> {
+            storage_journal.mark_updated(p.spawn_world(), p.id());
+            target_index.invalidate();
+        });
+        target_index.invalidate();
         portal.blocks().forEach(b -> index_portal_block(portal, b));
 
         // Create map marker
         update_marker(portal);
     }
 
+    /**
+     * Returns all portals that the given player may select as a target for the given portal,
+     * nearest first. See {@link PortalTargetIndex#targets_for}.
+     */
+    public List<Portal> targets_for(final Player player, final Portal source) {
+        return target_index.targets_for(player, source, portals.values());
+    }
+
     public Collection<Portal> all_available_portals() {
         return portals.values().stream().filter(p -> p.spawn().isWorldLoaded()).collect(Collectors.toList());
     }
@@ -518,13 +571,17 @@ public class Portals extends Module<Portals> {
             return;
         }
 
-        final var chunk_key = block.getChunk().getChunkKey();
+        final var chunk_key = chunk_key(block);
         final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
         if (block_to_portal_block == null) {
             return;
         }
 
         block_to_portal_block.remove(block_key(block));
+        if (block_to_portal_block.isEmpty()) {
+            portal_blocks_in_chunk.remove(chunk_key);
+        }
+        ++portal_index_generation;
 
         // Spawn effect if not portal area
         if (portal_block.type() != PortalBlock.Type.PORTAL) {
@@ -554,7 +611,7 @@ public class Portals extends Module<Portals> {
     public void add_new_portal_block(final Portal portal, final PortalBlock portal_block) {
         // Add to portal
         portal.blocks().add(portal_block);
-        portal.invalidated = true;
+        portal.invalidate();
 
         index_portal_block(portal, portal_block);
 
@@ -579,12 +636,19 @@ public class Portals extends Module<Portals> {
         // Add to acceleration structure
         final var block = portal_block.block();
         final var world_id = block.getWorld().getUID();
-        var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.computeIfAbsent(world_id, k -> new HashMap<>());
+        var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.computeIfAbsent(world_id, k ->
+            new LongObjectMap<>()
+        );
 
-        final var chunk_key = block.getChunk().getChunkKey();
-        var block_to_portal_block = portal_blocks_in_chunk.computeIfAbsent(chunk_key, k -> new HashMap<>());
+        final var chunk_key = chunk_key(block);
+        var block_to_portal_block = portal_blocks_in_chunk.computeIfAbsent(chunk_key, k -> new LongObjectMap<>());
 
         block_to_portal_block.put(block_key(block), portal_block.lookup(portal.id()));
+        ++portal_index_generation;
+    }
+
+    public long portal_index_generation() {
+        return portal_index_generation;
     }
 
     public PortalBlockLookup portal_block_for(final Block block) {
@@ -593,8 +657,7 @@ public class Portals extends Module<Portals> {
             return null;
         }
 
-        final var chunk_key = block.getChunk().getChunkKey();
-        final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
+        final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key(block));
         if (block_to_portal_block == null) {
             return null;
         }
@@ -629,8 +692,7 @@ public class Portals extends Module<Portals> {
             return false;
         }
 
-        final var chunk_key = block.getChunk().getChunkKey();
-        final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
+        final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key(block));
         if (block_to_portal_block == null) {
             return false;
         }
@@ -638,6 +700,21 @@ public class Portals extends Module<Portals> {
         return block_to_portal_block.containsKey(block_key(block));
     }
 
+    /** Matches all portal blocks in the given chunk. Used to check many blocks at once via {@link BlockSetQuery}. */
+    public BlockSetQuery.BlockMatcher portal_blocks_in_chunk(final World world, long chunk_key) {
+        final var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.get(world.getUID());
+        if (portal_blocks_in_chunk == null) {
+            return null;
+        }
+
+        final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
+        if (block_to_portal_block == null) {
+            return null;
+        }
+
+        return (x, y, z) -> block_to_portal_block.containsKey(block_key(x, y, z));
+    }
+
     public Portal controlled_portal(final Block block) {
         final var root_portal = portal_for(block);
         if (root_portal != null) {
@@ -705,6 +782,7 @@ public class Portals extends Module<Portals> {
         // Add to map
         connected_portals.put(src.id(), dst.id());
         connected_portals.put(dst.id(), src.id());
+        ++portal_index_generation;
 
         // Activate both
         src.on_connect(this, dst);
@@ -730,6 +808,7 @@ public class Portals extends Module<Portals> {
         // Remove from a map
         connected_portals.remove(src.id());
         connected_portals.remove(dst.id());
+        ++portal_index_generation;
 
         // Deactivate both
         src.on_disconnect(this, dst);
@@ -794,6 +873,17 @@ public class Portals extends Module<Portals> {
         return connected_portals.containsKey(portal.id());
     }
 
+    public Collection<Portal> activated_portals() {
+        final var activated = new ArrayList<Portal>();
+        for (final var portal_id : connected_portals.keySet()) {
+            final var portal = portal_for(portal_id);
+            if (portal != null) {
+                activated.add(portal);
+            }
+        }
+        return activated;
+    }
+
     public Portal connected_portal(final Portal portal) {
         final var connected_id = connected_portals.get(portal.id());
         if (connected_id == null) {
@@ -936,6 +1026,12 @@ public class Portals extends Module<Portals> {
         });
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_player_quit(final PlayerQuitEvent event) {
+        // Forget the cached target selection of this player
+        target_index.forget_player(event.getPlayer());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void on_monitor_chunk_unload(final ChunkUnloadEvent event) {
         final var chunk = event.getChunk();
@@ -997,21 +1093,30 @@ public class Portals extends Module<Portals> {
         final var pdc_portals = data
             .getKeys()
             .stream()
-            .filter(key -> key.toString().startsWith(storage_portal_prefix))
-            .map(key -> StringUtils.removeStart(key.toString(), storage_portal_prefix))
-            .map(uuid -> UUID.fromString(uuid))
+            .map(NamespacedKey::toString)
+            .filter(key -> key.startsWith(storage_portal_prefix))
+            .map(key -> UUID.fromString(key.substring(storage_portal_prefix.length())))
             .collect(Collectors.toSet());
 
         for (final var portal_id : pdc_portals) {
-            final var json_bytes = data.get(
+            storage_journal.mark_stored(world.getUID(), portal_id);
+            final var bytes = data.get(
                 NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()),
                 PersistentDataType.BYTE_ARRAY
             );
             try {
-                final var portal = PersistentSerializer.from_json(Portal.class, new JSONObject(new String(json_bytes)));
+                final var portal = PersistentSerializer.from_bytes(Portal.class, bytes);
+                // Freshly loaded portals match their stored state
+                portal.invalidated = false;
                 index_portal(portal);
+                if (!PersistentSerializer.is_binary(bytes)) {
+                    // Rewrite legacy json entries in the binary format on the next save
+                    portal.invalidate();
+                }
             } catch (IOException e) {
                 log.log(Level.SEVERE, "error while serializing persistent data!", e);
+                // Entries without a loaded portal are removed on the next save
+                storage_journal.mark_deleted(world.getUID(), portal_id);
             }
         }
         log.log(
@@ -1033,7 +1138,7 @@ public class Portals extends Module<Portals> {
             }
 
             index_portal(portal);
-            portal.invalidated = true;
+            portal.invalidate();
             converted += 1;
         }
 
@@ -1062,41 +1167,39 @@ public class Portals extends Module<Portals> {
     public void update_persistent_data(final World world) {
         final var data = world.getPersistentDataContainer();
         final var storage_portal_prefix = STORAGE_PORTALS + ".";
+        final var world_id = world.getUID();
 
-        // Update invalidated portals
-        portals
-            .values()
-            .stream()
-            .filter(x -> x.invalidated && x.spawn_world().equals(world.getUID()))
-            .forEach(portal -> {
-                try {
-                    final var json = PersistentSerializer.to_json(Portal.class, portal);
-                    data.set(
-                        NamespacedKey.fromString(storage_portal_prefix + portal.id().toString()),
-                        PersistentDataType.BYTE_ARRAY,
-                        json.toString().getBytes()
-                    );
-                } catch (IOException e) {
-                    log.log(Level.SEVERE, "error while serializing persistent data!", e);
-                    return;
-                }
+        // Update invalidated portals. Only portals that were changed since
+        // the last save have been recorded, so we never need to visit all portals.
+        for (final var portal_id : storage_journal.take_updated(world_id)) {
+            final var portal = portals.get(portal_id);
+            if (portal == null || !portal.invalidated) {
+                continue;
+            }
 
-                portal.invalidated = false;
-            });
+            try {
+                data.set(
+                    NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()),
+                    PersistentDataType.BYTE_ARRAY,
+                    PersistentSerializer.to_bytes(Portal.class, portal)
+                );
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "error while serializing persistent data!", e);
+                // Retry on the next save
+                storage_journal.mark_updated(world_id, portal_id);
+                continue;
+            }
 
-        // Get all currently stored portals.
-        final var stored_portals = data
-            .getKeys()
-            .stream()
-            .filter(key -> key.toString().startsWith(storage_portal_prefix))
-            .map(key -> StringUtils.removeStart(key.toString(), storage_portal_prefix))
-            .map(uuid -> UUID.fromString(uuid))
-            .collect(Collectors.toSet());
+            portal.invalidated = false;
+            storage_journal.mark_stored(world_id, portal_id);
+        }
 
         // Remove all portals that no longer exist
-        Sets.difference(stored_portals, portals.keySet()).forEach(id ->
-            data.remove(NamespacedKey.fromString(storage_portal_prefix + id.toString()))
-        );
+        for (final var portal_id : storage_journal.take_deleted(world_id)) {
+            if (!portals.containsKey(portal_id) && storage_journal.mark_unstored(world_id, portal_id)) {
+                data.remove(NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()));
+            }
+        }
     }
 
     private class PortalDisableRunnable implements Runnable {
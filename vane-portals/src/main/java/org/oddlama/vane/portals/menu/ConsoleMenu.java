@@ -1,7 +1,5 @@
 package org.oddlama.vane.portals.menu;
 
-import java.util.Objects;
-import java.util.stream.Collectors;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -211,25 +209,8 @@ public class ConsoleMenu extends ModuleComponent<Portals> {
                 return ClickResult.ERROR;
             } else {
                 menu.close(player);
-                final var all_portals = get_module()
-                    .all_available_portals()
-                    .stream()
-                    .filter(p -> {
-                        switch (p.visibility()) {
-                            case PUBLIC:
-                                return true;
-                            case GROUP:
-                                return get_module().player_can_use_portals_in_region_group_of(player, p);
-                            case GROUP_INTERNAL:
-                                return get_module().is_in_same_region_group(portal, p);
-                            case PRIVATE:
-                                return player.getUniqueId().equals(p.owner());
-                        }
-                        return false;
-                    })
-                    .filter(p -> !Objects.equals(p.id(), portal.id()))
-                    .sorted(new Portal.TargetSelectionComparator(player))
-                    .collect(Collectors.toList());
+                // Sorted lazily, only the shown page of nearest portals is computed
+                final var all_portals = get_module().targets_for(player, portal);
 
                 final var filter = new Filter.StringFilter<Portal>((p, str) -> p.name().toLowerCase().contains(str));
                 MenuFactory.generic_selector(
@@ -1,10 +1,14 @@
 package org.oddlama.vane.portals.portal;
 
+import static org.oddlama.vane.core.persistent.PersistentSerializer.from_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
+import static org.oddlama.vane.core.persistent.PersistentSerializer.to_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 import static org.oddlama.vane.util.BlockUtil.adjacent_blocks_3d;
 import static org.oddlama.vane.util.BlockUtil.update_lever;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,6 +17,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -29,6 +34,8 @@ import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.PersistentSerializer.Codec;
 import org.oddlama.vane.portals.Portals;
 import org.oddlama.vane.portals.event.PortalActivateEvent;
 import org.oddlama.vane.portals.event.PortalDeactivateEvent;
@@ -38,6 +45,8 @@ import org.oddlama.vane.util.LazyLocation;
 
 public class Portal {
 
+    private static final Codec BLOCKS_CODEC = PersistentSerializer.codec(Portal.class, "blocks");
+
     public static Object serialize(@NotNull final Object o) throws IOException {
         final var portal = (Portal) o;
         final var json = new JSONObject();
@@ -45,11 +54,7 @@ public class Portal {
         json.put("owner", to_json(UUID.class, portal.owner));
         json.put("orientation", to_json(Orientation.class, portal.orientation));
         json.put("spawn", to_json(LazyLocation.class, portal.spawn));
-        try {
-            json.put("blocks", to_json(Portal.class.getDeclaredField("blocks"), portal.blocks));
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        json.put("blocks", BLOCKS_CODEC.to_json(portal.blocks));
 
         json.put("name", to_json(String.class, portal.name));
         json.put("style", to_json(NamespacedKey.class, portal.style));
@@ -71,11 +76,7 @@ public class Portal {
         portal.owner = from_json(UUID.class, json.get("owner"));
         portal.orientation = from_json(Orientation.class, json.get("orientation"));
         portal.spawn = from_json(LazyLocation.class, json.get("spawn"));
-        try {
-            portal.blocks = (List<PortalBlock>) from_json(Portal.class.getDeclaredField("blocks"), json.get("blocks"));
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        portal.blocks = (List<PortalBlock>) BLOCKS_CODEC.from_json(json.get("blocks"));
 
         portal.name = from_json(String.class, json.get("name"));
         portal.style = from_json(NamespacedKey.class, json.get("style"));
@@ -96,6 +97,53 @@ public class Portal {
         return portal;
     }
 
+    public static void serialize_binary(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var portal = (Portal) o;
+        to_binary(UUID.class, portal.id, out);
+        to_binary(UUID.class, portal.owner, out);
+        to_binary(Orientation.class, portal.orientation, out);
+        to_binary(LazyLocation.class, portal.spawn, out);
+        BLOCKS_CODEC.to_binary(out, portal.blocks);
+
+        to_binary(String.class, portal.name, out);
+        to_binary(NamespacedKey.class, portal.style, out);
+        to_binary(Style.class, portal.style_override, out);
+        to_binary(ItemStack.class, portal.icon, out);
+        to_binary(Visibility.class, portal.visibility, out);
+
+        out.writeBoolean(portal.exit_orientation_locked);
+        to_binary(UUID.class, portal.target_id, out);
+        out.writeBoolean(portal.target_locked);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Portal deserialize_binary(final DataInput in) throws IOException {
+        final var portal = new Portal();
+        portal.id = from_binary(UUID.class, in);
+        portal.owner = from_binary(UUID.class, in);
+        portal.orientation = from_binary(Orientation.class, in);
+        portal.spawn = from_binary(LazyLocation.class, in);
+        portal.blocks = (List<PortalBlock>) BLOCKS_CODEC.from_binary(in);
+
+        portal.name = from_binary(String.class, in);
+        portal.style = from_binary(NamespacedKey.class, in);
+        portal.style_override = from_binary(Style.class, in);
+        if (portal.style_override != null) {
+            try {
+                portal.style_override.check_valid();
+            } catch (RuntimeException e) {
+                portal.style_override = null;
+            }
+        }
+        portal.icon = from_binary(ItemStack.class, in);
+        portal.visibility = from_binary(Visibility.class, in);
+
+        portal.exit_orientation_locked = in.readBoolean();
+        portal.target_id = from_binary(UUID.class, in);
+        portal.target_locked = in.readBoolean();
+        return portal;
+    }
+
     private UUID id;
     private UUID owner;
     private Orientation orientation;
@@ -116,6 +164,10 @@ public class Portal {
     // Not a saved field.
     public boolean invalidated = true;
 
+    // Notified whenever the portal is invalidated, so the owning module
+    // can record the change. Not a saved field.
+    private Consumer<Portal> invalidation_listener = null;
+
     private Portal() {}
 
     public Portal(final UUID owner, final Orientation orientation, final Location spawn) {
@@ -129,6 +181,17 @@ public class Portal {
         return id;
     }
 
+    public void invalidation_listener(final Consumer<Portal> invalidation_listener) {
+        this.invalidation_listener = invalidation_listener;
+    }
+
+    public void invalidate() {
+        this.invalidated = true;
+        if (invalidation_listener != null) {
+            invalidation_listener.accept(this);
+        }
+    }
+
     public UUID owner() {
         return owner;
     }
@@ -155,7 +218,7 @@ public class Portal {
 
     public void name(final String name) {
         this.name = name;
-        this.invalidated = true;
+        invalidate();
     }
 
     public NamespacedKey style() {
@@ -168,7 +231,7 @@ public class Portal {
         } else {
             this.style = style.key();
         }
-        this.invalidated = true;
+        invalidate();
     }
 
     public ItemStack icon() {
@@ -177,7 +240,7 @@ public class Portal {
 
     public void icon(final ItemStack icon) {
         this.icon = icon;
-        this.invalidated = true;
+        invalidate();
     }
 
     public Visibility visibility() {
@@ -186,7 +249,7 @@ public class Portal {
 
     public void visibility(final Visibility visibility) {
         this.visibility = visibility;
-        this.invalidated = true;
+        invalidate();
     }
 
     public boolean exit_orientation_locked() {
@@ -195,7 +258,7 @@ public class Portal {
 
     public void exit_orientation_locked(boolean exit_orientation_locked) {
         this.exit_orientation_locked = exit_orientation_locked;
-        this.invalidated = true;
+        invalidate();
     }
 
     public UUID target_id() {
@@ -204,7 +267,7 @@ public class Portal {
 
     public void target_id(final UUID target_id) {
         this.target_id = target_id;
-        this.invalidated = true;
+        invalidate();
     }
 
     public boolean target_locked() {
@@ -213,7 +276,7 @@ public class Portal {
 
     public void target_locked(boolean target_locked) {
         this.target_locked = target_locked;
-        this.invalidated = true;
+        invalidate();
     }
 
     public PortalBlock portal_block_for(final Block block) {
@@ -1,8 +1,12 @@
 package org.oddlama.vane.portals.portal;
 
+import static org.oddlama.vane.core.persistent.PersistentSerializer.from_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
+import static org.oddlama.vane.core.persistent.PersistentSerializer.to_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.UUID;
 import org.bukkit.block.Block;
@@ -27,6 +31,18 @@ public class PortalBlock {
         return new PortalBlock(block, type);
     }
 
+    public static void serialize_binary(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var portal_block = (PortalBlock) o;
+        to_binary(LazyBlock.class, portal_block.block, out);
+        to_binary(PortalBlock.Type.class, portal_block.type, out);
+    }
+
+    public static PortalBlock deserialize_binary(final DataInput in) throws IOException {
+        final var block = from_binary(LazyBlock.class, in);
+        final var type = from_binary(PortalBlock.Type.class, in);
+        return new PortalBlock(block, type);
+    }
+
     private LazyBlock block;
     private Type type;
 
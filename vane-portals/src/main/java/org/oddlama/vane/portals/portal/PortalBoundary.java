@@ -1,13 +1,14 @@
 package org.oddlama.vane.portals.portal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.oddlama.vane.portals.PortalConstructor;
 
@@ -104,64 +105,146 @@ public class PortalBoundary {
         return false;
     }
 
-    private static void push_block_if_not_contained(
-        final Block block,
-        final Stack<Block> stack,
-        final Set<Block> out_boundary,
-        final Set<Block> out_portal_area
-    ) {
-        if (out_boundary.contains(block) || out_portal_area.contains(block)) {
-            return;
+    /**
+     * A flood fill over a bounded grid of the portal plane, centered at the start block. Cells are
+     * addressed by a packed index (u * size_v + v) and tracked in primitive bitsets, so no block
+     * objects are created while searching. The buffers are reused between searches, which only
+     * ever happen on the main thread.
+     */
+    private static class FloodFill {
+
+        private World world;
+        private Plane plane;
+        private int center_x, center_y, center_z;
+        private int radius_u, radius_v;
+        private int size_u, size_v;
+
+        private long[] visited = new long[0];
+        private long[] boundary = new long[0];
+        // Number of words used by the current grid. The arrays may be larger from earlier searches.
+        private int words;
+        private int[] stack = new int[64];
+        private int stack_size;
+        // Set if the area reached the edge of the grid, so it cannot be a valid portal area.
+        private boolean overflow;
+
+        private void reset(final Block start, final Plane plane, int radius_u, int radius_v) {
+            this.world = start.getWorld();
+            this.plane = plane;
+            this.center_x = start.getX();
+            this.center_y = start.getY();
+            this.center_z = start.getZ();
+            this.radius_u = radius_u;
+            this.radius_v = radius_v;
+            this.size_u = 2 * radius_u + 1;
+            this.size_v = 2 * radius_v + 1;
+
+            words = (size_u * size_v + 63) >>> 6;
+            if (visited.length < words) {
+                visited = new long[words];
+                boundary = new long[words];
+            } else {
+                Arrays.fill(visited, 0, words, 0l);
+                Arrays.fill(boundary, 0, words, 0l);
+            }
+
+            stack_size = 0;
+            overflow = false;
+            push(radius_u * size_v + radius_v);
         }
 
-        stack.push(block);
-    }
+        private static boolean get(final long[] bits, int cell) {
+            return (bits[cell >>> 6] & (1l << cell)) != 0;
+        }
 
-    private static void push_adjacent_blocks_to_stack(
-        final Block block,
-        final Stack<Block> stack,
-        final Set<Block> out_boundary,
-        final Set<Block> out_portal_area,
-        Plane plane
-    ) {
-        switch (plane) {
-            case XY:
-                push_block_if_not_contained(block.getRelative(1, 0, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(-1, 0, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, 1, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, -1, 0), stack, out_boundary, out_portal_area);
-                break;
-            case YZ:
-                push_block_if_not_contained(block.getRelative(0, 0, 1), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, 0, -1), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, 1, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, -1, 0), stack, out_boundary, out_portal_area);
-                break;
-            case XZ:
-                push_block_if_not_contained(block.getRelative(1, 0, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(-1, 0, 0), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, 0, 1), stack, out_boundary, out_portal_area);
-                push_block_if_not_contained(block.getRelative(0, 0, -1), stack, out_boundary, out_portal_area);
-                break;
+        private static void set(final long[] bits, int cell) {
+            bits[cell >>> 6] |= 1l << cell;
         }
-    }
 
-    private static void do_flood_fill4_step(
-        final PortalConstructor portal_constructor,
-        final Stack<Block> stack,
-        final Set<Block> out_boundary,
-        final Set<Block> out_portal_area,
-        final Plane plane
-    ) {
-        final var block = stack.pop();
-        if (portal_constructor.is_type_part_of_boundary_or_origin(block.getType())) {
-            out_boundary.add(block);
-        } else {
-            out_portal_area.add(block);
-            push_adjacent_blocks_to_stack(block, stack, out_boundary, out_portal_area, plane);
+        private void push(int cell) {
+            if (get(visited, cell)) {
+                return;
+            }
+
+            set(visited, cell);
+            if (stack_size == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[stack_size++] = cell;
+        }
+
+        public boolean is_done() {
+            return stack_size == 0;
+        }
+
+        public boolean failed() {
+            return overflow;
+        }
+
+        private int x(int u, int v) {
+            return plane == Plane.YZ ? center_x : center_x + u - radius_u;
+        }
+
+        private int y(int u, int v) {
+            return plane == Plane.XZ ? center_y : center_y + v - radius_v;
+        }
+
+        private int z(int u, int v) {
+            return switch (plane) {
+                case XY -> center_z;
+                case YZ -> center_z + u - radius_u;
+                case XZ -> center_z + v - radius_v;
+            };
+        }
+
+        public void step(final PortalConstructor portal_constructor) {
+            final var cell = stack[--stack_size];
+            final var u = cell / size_v;
+            final var v = cell % size_v;
+            if (portal_constructor.is_type_part_of_boundary_or_origin(world.getType(x(u, v), y(u, v), z(u, v)))) {
+                set(boundary, cell);
+                return;
+            }
+
+            // An area touching the edge of the grid is larger than any portal could be
+            if (u == 0 || v == 0 || u == size_u - 1 || v == size_v - 1) {
+                overflow = true;
+                stack_size = 0;
+                return;
+            }
+
+            push(cell + size_v);
+            push(cell - size_v);
+            push(cell + 1);
+            push(cell - 1);
+        }
+
+        /** Returns the { boundary, portal_area } blocks of a completed fill. */
+        public Pair<Set<Block>, Set<Block>> result() {
+            final var out_boundary = new HashSet<Block>();
+            final var out_portal_area = new HashSet<Block>();
+            for (int word = 0; word < words; ++word) {
+                var bits = visited[word];
+                while (bits != 0) {
+                    final var cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    final var u = cell / size_v;
+                    final var v = cell % size_v;
+                    final var block = world.getBlockAt(x(u, v), y(u, v), z(u, v));
+                    if (get(boundary, cell)) {
+                        out_boundary.add(block);
+                    } else {
+                        out_portal_area.add(block);
+                    }
+                }
+            }
+            return Pair.of(out_boundary, out_portal_area);
         }
     }
 
+    private static final FloodFill[] flood_fills = { new FloodFill(), new FloodFill() };
+
     /**
      * Simultaneously fill two areas. Return as soon as a valid area is found or the maximum depth
      * is exceeded. Returns a pair of { boundary, portal_area }
@@ -171,26 +254,35 @@ public class PortalBoundary {
         final Block[] areas,
         final Plane plane
     ) {
-        final var boundary0 = new HashSet<Block>();
-        final var boundary1 = new HashSet<Block>();
-        final var portal_area0 = new HashSet<Block>();
-        final var portal_area1 = new HashSet<Block>();
-        final var flood_fill_stack0 = new Stack<Block>();
-        final var flood_fill_stack1 = new Stack<Block>();
-
-        if (areas[0] != null) {
-            flood_fill_stack0.push(areas[0]);
+        // The grid is large enough to contain portals twice the allowed size,
+        // so that too large portals can still be detected and reported as such.
+        final var max_u = plane == Plane.YZ ? portal_constructor.max_dim_z(plane) : portal_constructor.max_dim_x(plane);
+        final var max_v = plane == Plane.XZ ? portal_constructor.max_dim_z(plane) : portal_constructor.max_dim_y(plane);
+        final var radius_u = 2 * max_u + 2;
+        final var radius_v = 2 * max_v + 2;
+
+        final var fill0 = areas[0] == null ? null : flood_fills[0];
+        final var fill1 = areas[1] == null ? null : flood_fills[1];
+        if (fill0 != null) {
+            fill0.reset(areas[0], plane, radius_u, radius_v);
         }
-        if (areas[1] != null) {
-            flood_fill_stack1.push(areas[1]);
+        if (fill1 != null) {
+            fill1.reset(areas[1], plane, radius_u, radius_v);
         }
 
-        // Keep going as long as all stacks of enabled areas are not empty and max depth is not
-        // reached
+        // Keep going as long as all fills of enabled areas are not done and max depth is not
+        // reached. Areas that outgrew the grid are disabled.
         int depth = 0;
-        while (
-            (areas[0] == null || !flood_fill_stack0.isEmpty()) && (areas[1] == null || !flood_fill_stack1.isEmpty())
-        ) {
+        while (true) {
+            final var active0 = fill0 != null && !fill0.failed();
+            final var active1 = fill1 != null && !fill1.failed();
+            if (!active0 && !active1) {
+                return null;
+            }
+            if ((active0 && fill0.is_done()) || (active1 && fill1.is_done())) {
+                break;
+            }
+
             ++depth;
 
             // Maximum depth reached -> both areas are invalid
@@ -198,22 +290,18 @@ public class PortalBoundary {
                 return null;
             }
 
-            if (areas[0] != null) {
-                do_flood_fill4_step(portal_constructor, flood_fill_stack0, boundary0, portal_area0, plane);
+            if (active0) {
+                fill0.step(portal_constructor);
             }
-            if (areas[1] != null) {
-                do_flood_fill4_step(portal_constructor, flood_fill_stack1, boundary1, portal_area1, plane);
+            if (active1) {
+                fill1.step(portal_constructor);
             }
         }
 
-        if (areas[0] != null && flood_fill_stack0.isEmpty()) {
-            return Pair.of(boundary0, portal_area0);
-        } else if (areas[1] != null && flood_fill_stack1.isEmpty()) {
-            return Pair.of(boundary1, portal_area1);
+        if (fill0 != null && !fill0.failed() && fill0.is_done()) {
+            return fill0.result();
         }
-
-        // Cannot occur.
-        return null;
+        return fill1.result();
     }
 
     private static List<Block> get_surrounding_blocks_ccw(final Block block, final Plane plane) {
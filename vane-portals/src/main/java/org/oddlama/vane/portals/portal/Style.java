@@ -10,26 +10,20 @@ import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.PersistentSerializer.Codec;
 import org.oddlama.vane.util.StorageUtil;
 
 public class Style {
 
+    private static final Codec MATERIALS_CODEC = PersistentSerializer.codec(Style.class, "active_materials");
+
     public static Object serialize(@NotNull final Object o) throws IOException {
         final var style = (Style) o;
         final var json = new JSONObject();
         json.put("key", to_json(NamespacedKey.class, style.key));
-        try {
-            json.put(
-                "active_materials",
-                to_json(Style.class.getDeclaredField("active_materials"), style.active_materials)
-            );
-            json.put(
-                "inactive_materials",
-                to_json(Style.class.getDeclaredField("inactive_materials"), style.inactive_materials)
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        json.put("active_materials", MATERIALS_CODEC.to_json(style.active_materials));
+        json.put("inactive_materials", MATERIALS_CODEC.to_json(style.inactive_materials));
         return json;
     }
 
@@ -38,18 +32,12 @@ public class Style {
         final var json = (JSONObject) o;
         final var style = new Style(null);
         style.key = from_json(NamespacedKey.class, json.get("key"));
-        try {
-            style.active_materials = (Map<PortalBlock.Type, Material>) from_json(
-                Style.class.getDeclaredField("active_materials"),
-                json.get("active_materials")
-            );
-            style.inactive_materials = (Map<PortalBlock.Type, Material>) from_json(
-                Style.class.getDeclaredField("inactive_materials"),
-                json.get("inactive_materials")
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        style.active_materials = (Map<PortalBlock.Type, Material>) MATERIALS_CODEC.from_json(
+            json.get("active_materials")
+        );
+        style.inactive_materials = (Map<PortalBlock.Type, Material>) MATERIALS_CODEC.from_json(
+            json.get("inactive_materials")
+        );
         return style;
     }
 
@@ -3,6 +3,7 @@ package org.oddlama.vane.proxycore;
 import static org.oddlama.vane.proxycore.util.TimeUtil.format_time;
 
 import java.io.*;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.jetbrains.annotations.Nullable;
@@ -68,6 +69,9 @@ public class Maintenance {
     @Nullable
     private Long duration = 0L;
 
+    // The formatted MOTD only changes once per second, but is needed for every ping
+    private volatile CachedMessage cached_motd = null;
+
     public Maintenance(final VaneProxyPlugin plugin) {
         this.plugin = plugin;
     }
@@ -232,6 +236,29 @@ public class Maintenance {
             .replace("%remaining%", remaining_string);
     }
 
+    /** Returns the formatted maintenance MOTD, which is cached until the displayed times change. */
+    public String format_motd() {
+        final var start = this.start;
+        final var duration = this.duration;
+        final var second = Math.floorDiv(System.currentTimeMillis() - start, 1000L);
+
+        final var cached = cached_motd;
+        if (
+            cached != null &&
+            cached.start == start &&
+            Objects.equals(cached.duration, duration) &&
+            cached.second == second
+        ) {
+            return cached.message;
+        }
+
+        final var message = format_message(MOTD);
+        cached_motd = new CachedMessage(start, duration, second, message);
+        return message;
+    }
+
+    private static record CachedMessage(long start, @Nullable Long duration, long second, String message) {}
+
     public class TaskNotify implements Runnable {
 
         private ProxyScheduledTask task = null;
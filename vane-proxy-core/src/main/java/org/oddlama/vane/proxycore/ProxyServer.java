@@ -2,6 +2,7 @@ package org.oddlama.vane.proxycore;
 
 import java.util.Collection;
 import java.util.UUID;
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 import org.oddlama.vane.proxycore.scheduler.ProxyTaskScheduler;
 
 public interface ProxyServer {
@@ -11,5 +12,7 @@ public interface ProxyServer {
 
     Collection<ProxyPlayer> getPlayers();
 
+    Collection<IVaneProxyServerInfo> get_servers();
+
     boolean has_permission(UUID uuid, String... permission);
 }
@@ -0,0 +1,264 @@
+package org.oddlama.vane.proxycore;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
+import org.oddlama.vane.proxycore.scheduler.ProxyScheduledTask;
+
+/**
+ * Periodically probes all backend servers in the background and tracks the state of each server,
+ * so that handling server list pings never has to open a connection to a backend. Callers that
+ * need a fresh result share the probe that is currently in flight for a server instead of opening
+ * their own connection, and starting a server is gated by an atomic state transition.
+ */
+public class ServerHealthChecker {
+
+    public enum State {
+        // Never probed
+        UNKNOWN,
+        OFFLINE,
+        // The start command was run, but the server isn't reachable yet
+        STARTING,
+        ONLINE,
+    }
+
+    private final VaneProxyPlugin plugin;
+    // server name → status
+    private final Map<String, ServerStatus> statuses = new ConcurrentHashMap<>();
+    private ProxyScheduledTask task = null;
+
+    public ServerHealthChecker(final VaneProxyPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public synchronized void start() {
+        stop();
+
+        final var interval = plugin.get_config().health_check.interval_seconds;
+        task = plugin.get_proxy().get_scheduler().schedule(plugin, this::probe_all, 0, interval, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private ServerStatus status(final String name) {
+        return statuses.computeIfAbsent(name, k -> new ServerStatus());
+    }
+
+    private void probe_all() {
+        for (final var server : plugin.get_proxy().get_servers()) {
+            // Each server is probed in its own task, so an unreachable server
+            // cannot delay the results for the others.
+            request_probe(server);
+        }
+    }
+
+    /**
+     * Returns a future for a fresh probe of the given server. If a probe for this server is
+     * already running, its result is shared instead of opening another connection.
+     */
+    public CompletableFuture<Boolean> request_probe(final IVaneProxyServerInfo server) {
+        final var status = status(server.getName());
+        while (true) {
+            final var pending = status.pending_probe.get();
+            if (pending != null) {
+                return pending;
+            }
+
+            final var future = new CompletableFuture<Boolean>();
+            if (!status.pending_probe.compareAndSet(null, future)) {
+                continue;
+            }
+
+            plugin
+                .get_proxy()
+                .get_scheduler()
+                .runAsync(plugin, () -> {
+                    try {
+                        future.complete(probe(server, status));
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        status.pending_probe.compareAndSet(future, null);
+                    }
+                });
+            return future;
+        }
+    }
+
+    // Connects to the given server with the configured timeout and updates its state.
+    // This blocks the calling thread, so it must only be called from async tasks.
+    private boolean probe(final IVaneProxyServerInfo server, final ServerStatus status) {
+        final var addr = server.getSocketAddress();
+        if (!(addr instanceof final InetSocketAddress inet_addr)) {
+            update_state(status, false);
+            return false;
+        }
+
+        // Addresses from the proxy configuration may not have been resolved yet
+        final var target = inet_addr.isUnresolved()
+            ? new InetSocketAddress(inet_addr.getHostString(), inet_addr.getPort())
+            : inet_addr;
+
+        final var begin = System.nanoTime();
+        var connected = false;
+        try (final var test = new Socket()) {
+            test.connect(target, plugin.get_config().health_check.connect_timeout_millis);
+            connected = test.isConnected();
+        } catch (IOException e) {
+            // Server not up or not reachable
+        }
+
+        status.record_probe(System.nanoTime() - begin);
+        update_state(status, connected);
+        return connected;
+    }
+
+    private void update_state(final ServerStatus status, boolean connected) {
+        final var now = System.nanoTime();
+        if (connected) {
+            final var previous = status.phase.getAndSet(new Phase(State.ONLINE, now));
+            if (previous.state == State.STARTING) {
+                status.record_start(now - previous.since);
+            }
+            return;
+        }
+
+        // A starting server stays in that state until it either comes up or the start times out
+        status.phase.updateAndGet(phase ->
+            phase.state == State.OFFLINE || is_starting(phase, now) ? phase : new Phase(State.OFFLINE, now)
+        );
+    }
+
+    private boolean is_starting(final Phase phase, long now) {
+        final var timeout = TimeUnit.SECONDS.toNanos(plugin.get_config().health_check.start_timeout_seconds);
+        return phase.state == State.STARTING && now - phase.since < timeout;
+    }
+
+    /**
+     * Atomically puts the given server into the starting state. Returns false if the server is
+     * already online or starting, in which case the start command must not be run.
+     */
+    public boolean begin_start(final String name) {
+        final var status = status(name);
+        final var now = System.nanoTime();
+        while (true) {
+            final var phase = status.phase.get();
+            if (phase.state == State.ONLINE || is_starting(phase, now)) {
+                return false;
+            }
+            if (status.phase.compareAndSet(phase, new Phase(State.STARTING, now))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records the completion of a start command. If the command failed, the server goes back to
+     * the offline state so the next connecting player may try again.
+     */
+    public void end_start(final String name, long command_nanos, boolean success) {
+        final var status = status(name);
+        status.record_start_command(command_nanos);
+        if (!success) {
+            status.phase.updateAndGet(phase ->
+                phase.state == State.STARTING ? new Phase(State.OFFLINE, System.nanoTime()) : phase
+            );
+        }
+    }
+
+    /** Returns the current state of the given server. */
+    public State state(final String name) {
+        final var status = statuses.get(name);
+        return status == null ? State.UNKNOWN : status.phase.get().state;
+    }
+
+    /** Returns the cached state of the given server. Servers that were never probed are considered offline. */
+    public boolean is_online(final IVaneProxyServerInfo server) {
+        return state(server.getName()) == State.ONLINE;
+    }
+
+    /** Returns a snapshot of the state and metrics of all servers that were seen so far. */
+    public Map<String, ServerStatus> statuses() {
+        return Map.copyOf(statuses);
+    }
+
+    private static record Phase(State state, long since) {}
+
+    public static class ServerStatus {
+
+        private final AtomicReference<Phase> phase = new AtomicReference<>(
+            new Phase(State.UNKNOWN, System.nanoTime())
+        );
+        private final AtomicReference<CompletableFuture<Boolean>> pending_probe = new AtomicReference<>();
+
+        private long probe_count = 0;
+        private long probe_nanos_total = 0;
+        private long probe_nanos_last = 0;
+        private long probe_nanos_max = 0;
+
+        private long start_count = 0;
+        private long start_nanos_last = 0;
+        private long start_command_nanos_last = 0;
+
+        private synchronized void record_probe(long nanos) {
+            ++probe_count;
+            probe_nanos_total += nanos;
+            probe_nanos_last = nanos;
+            probe_nanos_max = Math.max(probe_nanos_max, nanos);
+        }
+
+        private synchronized void record_start(long nanos) {
+            ++start_count;
+            start_nanos_last = nanos;
+        }
+
+        private synchronized void record_start_command(long nanos) {
+            start_command_nanos_last = nanos;
+        }
+
+        public State state() {
+            return phase.get().state;
+        }
+
+        public synchronized long probe_count() {
+            return probe_count;
+        }
+
+        public synchronized double probe_millis_avg() {
+            return probe_count == 0 ? 0.0 : probe_nanos_total / (probe_count * 1e6);
+        }
+
+        public synchronized double probe_millis_last() {
+            return probe_nanos_last / 1e6;
+        }
+
+        public synchronized double probe_millis_max() {
+            return probe_nanos_max / 1e6;
+        }
+
+        /** How often the server came online after a start command was run. */
+        public synchronized long start_count() {
+            return start_count;
+        }
+
+        /** The time from running the last start command until the server was reachable. */
+        public synchronized double start_seconds_last() {
+            return start_nanos_last / 1e9;
+        }
+
+        public synchronized double start_command_seconds_last() {
+            return start_command_nanos_last / 1e9;
+        }
+    }
+}
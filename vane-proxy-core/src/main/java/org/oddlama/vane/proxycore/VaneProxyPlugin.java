@@ -1,16 +1,12 @@
 package org.oddlama.vane.proxycore;
 
 import java.io.File;
-import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.oddlama.vane.proxycore.config.ConfigManager;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 import org.oddlama.vane.proxycore.config.ManagedServer;
@@ -24,8 +20,11 @@ public abstract class VaneProxyPlugin {
     public static final String CHANNEL_AUTH_MULTIPLEX =
         CHANNEL_AUTH_MULTIPLEX_NAMESPACE + ":" + CHANNEL_AUTH_MULTIPLEX_NAME;
 
+    private static final ManagedServer.PingResponse EMPTY_PING_RESPONSE = new ManagedServer.PingResponse("", null);
+
     public ConfigManager config = new ConfigManager(this);
     public Maintenance maintenance = new Maintenance(this);
+    public ServerHealthChecker health_checker = new ServerHealthChecker(this);
     public IVaneLogger logger;
     public ProxyServer server;
     public File data_dir;
@@ -33,32 +32,20 @@ public abstract class VaneProxyPlugin {
     private final LinkedHashMap<UUID, UUID> multiplexedUUIDs = new LinkedHashMap<>();
     private final LinkedHashMap<UUID, PreLoginEvent.MultiplexedPlayer> pending_multiplexer_logins =
         new LinkedHashMap<>();
-    private boolean server_starting;
 
     public boolean is_online(final IVaneProxyServerInfo server) {
-        final var addr = server.getSocketAddress();
-        if (!(addr instanceof final InetSocketAddress inet_addr)) {
-            return false;
-        }
-
-        var connected = false;
-        try (final var test = new Socket(inet_addr.getHostName(), inet_addr.getPort())) {
-            connected = test.isConnected();
-        } catch (IOException e) {
-            // Server not up or not reachable
-        }
-
-        return connected;
+        // Cached state from the background health checker, never blocks.
+        return health_checker.is_online(server);
     }
 
-    public String get_motd(final IVaneProxyServerInfo server) {
-        // Maintenance
-        if (maintenance.enabled()) {
-            return maintenance.format_message(Maintenance.MOTD);
-        }
+    public boolean probe_online(final IVaneProxyServerInfo server) {
+        // Fresh, timeout-bounded connection attempt shared with concurrent callers.
+        // Blocks the calling thread.
+        return health_checker.request_probe(server).join();
+    }
 
+    public ManagedServer.PingResponse get_ping_response(final IVaneProxyServerInfo server) {
         final var cms = config.managed_servers.get(server.getName());
-        if (cms == null) return "";
 
         ManagedServer.ConfigItemSource source;
         if (is_online(server)) {
@@ -67,21 +54,13 @@ public abstract class VaneProxyPlugin {
             source = ManagedServer.ConfigItemSource.OFFLINE;
         }
 
-        return cms.motd(source);
-    }
-
-    public @Nullable String get_favicon(final IVaneProxyServerInfo server) {
-        final var cms = config.managed_servers.get(server.getName());
-        if (cms == null) return null;
-
-        ManagedServer.ConfigItemSource source;
-        if (is_online(server)) {
-            source = ManagedServer.ConfigItemSource.ONLINE;
-        } else {
-            source = ManagedServer.ConfigItemSource.OFFLINE;
+        // Maintenance
+        if (maintenance.enabled()) {
+            return new ManagedServer.PingResponse(maintenance.format_motd(), cms == null ? null : cms.favicon(source));
         }
 
-        return cms.favicon(source);
+        if (cms == null) return EMPTY_PING_RESPONSE;
+        return cms.ping_response(source);
     }
 
     public File get_data_folder() {
@@ -105,16 +84,15 @@ public abstract class VaneProxyPlugin {
     }
 
     public void try_start_server(ManagedServer server) {
-        // FIXME: this is not async-safe and there might be conditions where two start commands can
-        // be executed
-        // simultaneously. Don't rely on this as a user - instead use a start command that is
-        // atomic.
-        if (server_starting) return;
+        // Only the first caller gets to run the start command, until the server
+        // is online, the command failed or the start timed out.
+        if (!health_checker.begin_start(server.id())) return;
 
         this.server.get_scheduler()
             .runAsync(this, () -> {
+                final var begin = System.nanoTime();
+                var success = false;
                 try {
-                    server_starting = true;
                     get_logger()
                         .log(
                             Level.INFO,
@@ -131,21 +109,23 @@ public abstract class VaneProxyPlugin {
                     final var process = processBuilder.start();
 
                     if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+                        // The server might still come up, so this doesn't count as a failure
                         get_logger().log(Level.SEVERE, "Server '" + server.id() + "'s start command timed out!");
-                    }
-
-                    if (process.exitValue() != 0) {
+                        success = true;
+                    } else if (process.exitValue() != 0) {
                         get_logger()
                             .log(
                                 Level.SEVERE,
                                 "Server '" + server.id() + "'s start command returned a nonzero exit code!"
                             );
+                    } else {
+                        success = true;
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
+                } finally {
+                    health_checker.end_start(server.id(), System.nanoTime() - begin, success);
                 }
-
-                server_starting = false;
             });
     }
 
@@ -0,0 +1,51 @@
+package org.oddlama.vane.proxycore.commands;
+
+import java.util.TreeMap;
+import org.oddlama.vane.proxycore.ProxyPlayer;
+import org.oddlama.vane.proxycore.VaneProxyPlugin;
+
+public class ProxyHealthCommand extends ProxyCommand {
+
+    public ProxyHealthCommand(String permission, VaneProxyPlugin plugin) {
+        super(permission, plugin);
+    }
+
+    @Override
+    public void execute(ProxyCommandSender sender, String[] args) {
+        // Only check permission on players
+        if (sender instanceof ProxyPlayer player && !has_permission(player.get_unique_id())) {
+            sender.send_message("No permission!");
+            return;
+        }
+
+        final var statuses = new TreeMap<>(plugin.health_checker.statuses());
+        if (statuses.isEmpty()) {
+            sender.send_message("§7No server has been probed yet.");
+            return;
+        }
+
+        for (final var entry : statuses.entrySet()) {
+            final var status = entry.getValue();
+            var message = String.format(
+                "§7> §3%s §7[§b%s§7] probes: §b%d§7, last §b%.1fms§7, avg §b%.1fms§7, max §b%.1fms",
+                entry.getKey(),
+                status.state(),
+                status.probe_count(),
+                status.probe_millis_last(),
+                status.probe_millis_avg(),
+                status.probe_millis_max()
+            );
+
+            if (status.start_count() > 0) {
+                message += String.format(
+                    "§7, starts: §b%d§7, last start §b%.1fs§7 (command §b%.1fs§7)",
+                    status.start_count(),
+                    status.start_seconds_last(),
+                    status.start_command_seconds_last()
+                );
+            }
+
+            sender.send_message(message);
+        }
+    }
+}
@@ -13,6 +13,7 @@ public class Config {
     // multiplexer_id, { Integer port, List<UUID> allowed_uuids }
     public LinkedHashMap<Integer, AuthMultiplex> auth_multiplex;
     public LinkedHashMap<String, ManagedServer> managed_servers;
+    public HealthCheck health_check;
 
     public Config(File file) throws IOException {
         CommentedFileConfig config = CommentedFileConfig.builder(file)
@@ -76,5 +77,7 @@ public class Config {
         }
 
         this.managed_servers = managed_servers;
+
+        this.health_check = new HealthCheck(config.get("health_check"));
     }
 }
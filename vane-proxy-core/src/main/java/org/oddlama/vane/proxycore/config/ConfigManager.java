@@ -14,6 +14,8 @@ public class ConfigManager {
     public final Map<String, ManagedServer> managed_servers = new HashMap<>();
     // port → alias id (starts at 1)
     public final Map<Integer, AuthMultiplex> multiplexer_by_id = new HashMap<>();
+    // Background health check settings
+    public HealthCheck health_check = new HealthCheck(null);
     private final VaneProxyPlugin plugin;
 
     public ConfigManager(final VaneProxyPlugin plugin) {
@@ -58,6 +60,7 @@ public class ConfigManager {
 
         multiplexer_by_id.putAll(parsed_config.auth_multiplex);
         managed_servers.putAll(parsed_config.managed_servers);
+        health_check = parsed_config.health_check;
 
         return true;
     }
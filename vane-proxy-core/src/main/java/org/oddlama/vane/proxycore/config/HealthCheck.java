@@ -0,0 +1,53 @@
+package org.oddlama.vane.proxycore.config;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+
+public class HealthCheck {
+
+    private static final int DEFAULT_INTERVAL_SECONDS = 5;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int DEFAULT_START_TIMEOUT_SECONDS = 300;
+
+    public int interval_seconds;
+    public int connect_timeout_millis;
+    public int start_timeout_seconds;
+
+    public HealthCheck(CommentedConfig config) {
+        // [health_check]
+        if (config == null) {
+            // The whole section is missing
+            this.interval_seconds = DEFAULT_INTERVAL_SECONDS;
+            this.connect_timeout_millis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+            this.start_timeout_seconds = DEFAULT_START_TIMEOUT_SECONDS;
+            return;
+        }
+
+        var interval = config.get("interval");
+        var connect_timeout = config.get("connect_timeout");
+        var start_timeout = config.get("start_timeout");
+
+        if (interval == null) {
+            this.interval_seconds = DEFAULT_INTERVAL_SECONDS;
+        } else if (!(interval instanceof Integer) || (Integer) interval <= 0) {
+            throw new IllegalArgumentException("Health check interval must be a positive integer!");
+        } else {
+            this.interval_seconds = (Integer) interval;
+        }
+
+        if (connect_timeout == null) {
+            this.connect_timeout_millis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        } else if (!(connect_timeout instanceof Integer) || (Integer) connect_timeout <= 0) {
+            throw new IllegalArgumentException("Health check connect_timeout must be a positive integer!");
+        } else {
+            this.connect_timeout_millis = (Integer) connect_timeout;
+        }
+
+        if (start_timeout == null) {
+            this.start_timeout_seconds = DEFAULT_START_TIMEOUT_SECONDS;
+        } else if (!(start_timeout instanceof Integer) || (Integer) start_timeout <= 0) {
+            throw new IllegalArgumentException("Health check start_timeout must be a positive integer!");
+        } else {
+            this.start_timeout_seconds = (Integer) start_timeout;
+        }
+    }
+}
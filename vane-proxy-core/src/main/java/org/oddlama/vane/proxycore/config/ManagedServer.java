@@ -7,7 +7,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.imageio.ImageIO;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -40,18 +40,15 @@ public class ManagedServer {
         return this.id;
     }
 
+    private StatefulConfiguration config(ConfigItemSource source) {
+        return switch (source) {
+            case ONLINE -> online_config;
+            case OFFLINE -> offline_config;
+        };
+    }
+
     public @Nullable String favicon(ConfigItemSource source) {
-        switch (source) {
-            case ONLINE -> {
-                return online_config.encoded_favicon;
-            }
-            case OFFLINE -> {
-                return offline_config.encoded_favicon;
-            }
-            default -> {
-                return null;
-            }
-        }
+        return config(source).encoded_favicon;
     }
 
     public String[] start_cmd() {
@@ -62,43 +59,17 @@ public class ManagedServer {
         return start.kick_msg;
     }
 
-    private String random_quote(ConfigItemSource source) {
-        final String[] quote_set;
-        switch (source) {
-            case ONLINE -> quote_set = online_config.quotes;
-            case OFFLINE -> quote_set = offline_config.quotes;
-            default -> {
-                return "";
-            }
-        }
-
-        if (quote_set == null || quote_set.length == 0) {
-            return "";
+    /** Returns one of the precomputed ping responses for the given state, with a random quote. */
+    public PingResponse ping_response(ConfigItemSource source) {
+        final var responses = config(source).ping_responses;
+        if (responses.length == 1) {
+            return responses[0];
         }
-        return quote_set[new Random().nextInt(quote_set.length)];
+        return responses[ThreadLocalRandom.current().nextInt(responses.length)];
     }
 
     public String motd(ConfigItemSource source) {
-        final String sourced_motd;
-        final ConfigItemSource quote_source;
-        switch (source) {
-            case ONLINE -> {
-                sourced_motd = online_config.motd;
-                quote_source = ConfigItemSource.ONLINE;
-            }
-            case OFFLINE -> {
-                sourced_motd = offline_config.motd;
-                quote_source = ConfigItemSource.OFFLINE;
-            }
-            default -> {
-                return "";
-            }
-        }
-
-        if (sourced_motd == null) {
-            return "";
-        }
-        return sourced_motd.replace("{QUOTE}", random_quote(quote_source));
+        return ping_response(source).motd();
     }
 
     public Integer command_timeout() {
@@ -110,16 +81,21 @@ public class ManagedServer {
         OFFLINE,
     }
 
+    public static record PingResponse(String motd, @Nullable String favicon) {}
+
     private static class StatefulConfiguration {
 
         public String[] quotes = null;
         public String motd = null;
         private @Nullable String encoded_favicon;
+        // One response for each quote, so pings don't have to format the MOTD
+        private PingResponse[] ping_responses;
 
         public StatefulConfiguration(String id, String display_name, CommentedConfig config) throws IOException {
             // [managed_servers.my_server.state]
             if (config == null) {
                 // The whole section is missing
+                this.ping_responses = new PingResponse[] { new PingResponse("", null) };
                 return;
             }
 
@@ -155,6 +131,24 @@ public class ManagedServer {
                 id,
                 (String) favicon_path
             );
+
+            this.ping_responses = build_ping_responses();
+        }
+
+        private PingResponse[] build_ping_responses() {
+            if (motd == null) {
+                return new PingResponse[] { new PingResponse("", encoded_favicon) };
+            }
+
+            if (quotes == null || quotes.length == 0 || !motd.contains("{QUOTE}")) {
+                return new PingResponse[] { new PingResponse(motd.replace("{QUOTE}", ""), encoded_favicon) };
+            }
+
+            final var responses = new PingResponse[quotes.length];
+            for (int i = 0; i < quotes.length; ++i) {
+                responses[i] = new PingResponse(motd.replace("{QUOTE}", quotes[i]), encoded_favicon);
+            }
+            return responses;
         }
 
         private static String encode_favicon(String id, String favicon_path) throws IOException {
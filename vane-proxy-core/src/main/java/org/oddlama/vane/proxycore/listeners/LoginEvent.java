@@ -38,8 +38,9 @@ public abstract class LoginEvent implements ProxyEvent, ProxyCancellableEvent {
                 "Connection '" + connection.get_name() + "' is connecting to '" + server_info.getName() + "'"
             );
 
-        // Start server if necessary
-        if (!plugin.is_online(server_info)) {
+        // Start server if necessary. Only probe if the server isn't known to be online,
+        // concurrent logins share a single probe.
+        if (!plugin.is_online(server_info) && !plugin.probe_online(server_info)) {
             // For use inside callback
             final var cms = plugin.get_config().managed_servers.get(server_info.getName());
 
@@ -16,8 +16,9 @@ public abstract class PingEvent implements ProxyEvent {
     }
 
     public void fire() {
-        ping.set_description(plugin.get_motd(server));
-        ping.set_favicon(plugin.get_favicon(server));
+        final var response = plugin.get_ping_response(server);
+        ping.set_description(response.motd());
+        ping.set_favicon(response.favicon());
 
         this.send_response();
     }
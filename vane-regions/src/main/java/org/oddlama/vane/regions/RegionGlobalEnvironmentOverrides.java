@@ -57,6 +57,32 @@ public class RegionGlobalEnvironmentOverrides extends ModuleComponent<Regions> {
         return 0;
     }
 
+    // Masks of all force-enabled and force-disabled settings, folded from the
+    // configured overrides whenever the configuration is (re-)loaded.
+    private int enabled_mask = 0;
+    private int disabled_mask = 0;
+
+    /** Applies all overrides to the given mask of player-configured settings. */
+    public int apply(int mask) {
+        return (mask | enabled_mask) & ~disabled_mask;
+    }
+
+    @Override
+    protected void on_config_change() {
+        int enabled = 0;
+        int disabled = 0;
+        for (final var setting : EnvironmentSetting.values()) {
+            final var override = get_override(setting);
+            if (override == 1) {
+                enabled |= setting.bit();
+            } else if (override == -1) {
+                disabled |= setting.bit();
+            }
+        }
+        enabled_mask = enabled;
+        disabled_mask = disabled;
+    }
+
     @Override
     public void on_enable() {}
 
@@ -0,0 +1,160 @@
+package org.oddlama.vane.regions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.bukkit.Chunk;
+import org.oddlama.vane.regions.region.Region;
+import org.oddlama.vane.util.LongObjectMap;
+
+/**
+ * Spatial lookup structure for all regions of a single world. Regions are bucketed into
+ * every chunk column they intersect, and each bucket is kept as an interval list sorted by
+ * the minimum x coordinate, augmented with a running maximum of the maximum x coordinate.
+ * Point queries binary search the bucket and only visit regions whose x interval can still
+ * contain the point. All keys are computed from coordinates, so no chunk is ever accessed.
+ */
+public class RegionIndex {
+
+    private final LongObjectMap<ChunkRegions> regions_in_chunk = new LongObjectMap<>();
+
+    public static long chunk_key(int block_x, int block_z) {
+        return Chunk.getChunkKey(block_x >> 4, block_z >> 4);
+    }
+
+    public boolean isEmpty() {
+        return regions_in_chunk.isEmpty();
+    }
+
+    public void add(final Region region) {
+        final var extent = region.extent();
+        // Iterate all the chunks which intersect the region
+        for (int cx = extent.min_x() >> 4; cx <= extent.max_x() >> 4; ++cx) {
+            for (int cz = extent.min_z() >> 4; cz <= extent.max_z() >> 4; ++cz) {
+                regions_in_chunk.computeIfAbsent(Chunk.getChunkKey(cx, cz), k -> new ChunkRegions()).add(region);
+            }
+        }
+    }
+
+    public void remove(final Region region) {
+        final var extent = region.extent();
+        for (int cx = extent.min_x() >> 4; cx <= extent.max_x() >> 4; ++cx) {
+            for (int cz = extent.min_z() >> 4; cz <= extent.max_z() >> 4; ++cz) {
+                final var chunk_key = Chunk.getChunkKey(cx, cz);
+                final var chunk_regions = regions_in_chunk.get(chunk_key);
+                if (chunk_regions == null) {
+                    continue;
+                }
+
+                chunk_regions.remove(region);
+                if (chunk_regions.isEmpty()) {
+                    regions_in_chunk.remove(chunk_key);
+                }
+            }
+        }
+    }
+
+    /** Returns all regions that may intersect the given chunk, or null if there are none. */
+    public ChunkRegions regions_in_chunk(long chunk_key) {
+        return regions_in_chunk.get(chunk_key);
+    }
+
+    public Region region_at(int x, int y, int z) {
+        final var chunk_regions = regions_in_chunk.get(chunk_key(x, z));
+        if (chunk_regions == null) {
+            return null;
+        }
+        return chunk_regions.region_at(x, y, z);
+    }
+
+    /** All regions intersecting a single chunk column. */
+    public static class ChunkRegions {
+
+        private final List<Region> regions = new ArrayList<>(2);
+
+        // Packed, sorted lookup arrays. Rebuilt lazily after modification.
+        private boolean dirty = true;
+        private Region[] sorted;
+        private int[] min_x;
+        private int[] running_max_x;
+        private int[] bounds;
+
+        public boolean isEmpty() {
+            return regions.isEmpty();
+        }
+
+        public List<Region> regions() {
+            return regions;
+        }
+
+        private void add(final Region region) {
+            regions.add(region);
+            dirty = true;
+        }
+
+        private void remove(final Region region) {
+            regions.remove(region);
+            dirty = true;
+        }
+
+        private void rebuild() {
+            final var n = regions.size();
+            sorted = regions.toArray(new Region[n]);
+            Arrays.sort(sorted, Comparator.comparingInt(r -> r.extent().min_x()));
+
+            min_x = new int[n];
+            running_max_x = new int[n];
+            // Remaining bounds as (max_x, min_y, max_y, min_z, max_z) tuples
+            bounds = new int[n * 5];
+            int max_x = Integer.MIN_VALUE;
+            for (int i = 0; i < n; ++i) {
+                final var extent = sorted[i].extent();
+                min_x[i] = extent.min_x();
+                max_x = Math.max(max_x, extent.max_x());
+                running_max_x[i] = max_x;
+                bounds[i * 5] = extent.max_x();
+                bounds[i * 5 + 1] = extent.min_y();
+                bounds[i * 5 + 2] = extent.max_y();
+                bounds[i * 5 + 3] = extent.min_z();
+                bounds[i * 5 + 4] = extent.max_z();
+            }
+
+            dirty = false;
+        }
+
+        public Region region_at(int x, int y, int z) {
+            if (dirty) {
+                rebuild();
+            }
+
+            // Find the first region with min_x > x
+            int lo = 0;
+            int hi = min_x.length;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (min_x[mid] <= x) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            // Walk back while any earlier region could still reach x.
+            for (int i = lo - 1; i >= 0 && running_max_x[i] >= x; --i) {
+                final int b = i * 5;
+                if (
+                    x <= bounds[b] &&
+                    y >= bounds[b + 1] &&
+                    y <= bounds[b + 2] &&
+                    z >= bounds[b + 3] &&
+                    z <= bounds[b + 4]
+                ) {
+                    return sorted[i];
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -28,8 +28,11 @@ public class RegionPortalIntegration {
                     return true;
                 }
                 final var group = region.region_group(context.get_module());
-                return group.get_role(player.getUniqueId()).get_setting(RoleSetting.PORTAL);
+                return group.get_role_setting(player.getUniqueId(), RoleSetting.PORTAL);
             });
+
+            // Lets portals know when cached visibility of portals in regions must be recomputed
+            portals.set_region_generation_callback(context::change_generation);
         }
     }
 }
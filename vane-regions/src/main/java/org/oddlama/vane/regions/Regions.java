@@ -2,22 +2,18 @@ package org.oddlama.vane.regions;
 
 import static org.oddlama.vane.util.PlayerUtil.take_items;
 
-import com.google.common.collect.Sets;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import net.minecraft.core.BlockPos;
-import org.apache.commons.lang.StringUtils;
-import org.bukkit.Chunk;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -38,7 +34,6 @@ import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
-import org.json.JSONObject;
 import org.oddlama.vane.annotation.VaneModule;
 import org.oddlama.vane.annotation.config.ConfigBoolean;
 import org.oddlama.vane.annotation.config.ConfigDouble;
@@ -49,6 +44,7 @@ import org.oddlama.vane.annotation.persistent.Persistent;
 import org.oddlama.vane.core.lang.TranslatedMessage;
 import org.oddlama.vane.core.module.Module;
 import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.WorldStorageJournal;
 import org.oddlama.vane.regions.event.RegionEnvironmentSettingEnforcer;
 import org.oddlama.vane.regions.event.RegionRoleSettingEnforcer;
 import org.oddlama.vane.regions.event.RegionSelectionListener;
@@ -62,6 +58,7 @@ import org.oddlama.vane.regions.region.RegionGroup;
 import org.oddlama.vane.regions.region.RegionSelection;
 import org.oddlama.vane.regions.region.Role;
 import org.oddlama.vane.regions.region.RoleSetting;
+import org.oddlama.vane.util.BlockSetQuery;
 import org.oddlama.vane.util.StorageUtil;
 
 @VaneModule(name = "regions", bstats = 8643, config_version = 4, lang_version = 3, storage_version = 1)
@@ -102,6 +99,10 @@ public class Regions extends Module<Regions> {
         PersistentSerializer.deserializers.put(Region.class, Region::deserialize);
         PersistentSerializer.serializers.put(RegionExtent.class, RegionExtent::serialize);
         PersistentSerializer.deserializers.put(RegionExtent.class, RegionExtent::deserialize);
+        PersistentSerializer.binary_serializers.put(Region.class, Region::serialize_binary);
+        PersistentSerializer.binary_deserializers.put(Region.class, Region::deserialize_binary);
+        PersistentSerializer.binary_serializers.put(RegionExtent.class, RegionExtent::serialize_binary);
+        PersistentSerializer.binary_deserializers.put(RegionExtent.class, RegionExtent::deserialize_binary);
     }
 
     @ConfigInt(def = 4, min = 1, desc = "Minimum region extent in x direction.")
@@ -163,6 +164,10 @@ public class Regions extends Module<Regions> {
     private Map<UUID, Region> storage_regions = new HashMap<>();
 
     private Map<UUID, Region> regions = new HashMap<>();
+    // Tracks which regions are stored in each world and which need to be written or removed on the next save.
+    private final WorldStorageJournal storage_journal = new WorldStorageJournal();
+    // Incremented whenever a region, region group or role changes.
+    private long change_generation = 0;
 
     // Primary storage for all region_groups (region_group.id → region_group)
     @Persistent
@@ -173,8 +178,8 @@ public class Regions extends Module<Regions> {
     @Persistent
     private Map<UUID, UUID> storage_default_region_group = new HashMap<>();
 
-    // Per-chunk lookup cache (world_id → chunk_key → [possible regions])
-    private Map<UUID, Map<Long, List<Region>>> regions_in_chunk_in_world = new HashMap<>();
+    // Spatial lookup index (world_id → index over chunk_key → [possible regions])
+    private Map<UUID, RegionIndex> region_index_in_world = new HashMap<>();
     // A map containing the current extent for each player who is currently selecting a region
     // No key → Player not in selection mode
     // extent.min or extent.max null → Selection mode active, but no selection has been made yet
@@ -502,10 +507,23 @@ public class Regions extends Module<Regions> {
         }
     }
 
+    @Override
+    public void mark_persistent_storage_dirty() {
+        // All changes to region groups and roles are followed by this
+        ++change_generation;
+        super.mark_persistent_storage_dirty();
+    }
+
+    /** Returns a value that changes whenever regions, region groups or roles have changed. */
+    public long change_generation() {
+        // All counters only ever increase, so the sum changes whenever any of them changes
+        return change_generation + Role.permission_generation() + RegionGroup.membership_generation();
+    }
+
     public void add_new_region(final Region region) {
-        region.invalidated = true;
         // Index region for fast lookup
         index_region(region);
+        region.invalidate();
     }
 
     public void remove_region(final Region region) {
@@ -514,6 +532,9 @@ public class Regions extends Module<Regions> {
             // Was already removed
             return;
         }
+        region.invalidation_listener(null);
+        storage_journal.mark_deleted(region.extent().world(), region.id());
+        ++change_generation;
 
         // Force update storage now, as a precaution.
         update_persistent_data();
@@ -549,105 +570,78 @@ public class Regions extends Module<Regions> {
 
     private void index_region(final Region region) {
         regions.put(region.id(), region);
+        region.invalidation_listener(r -> {
+            storage_journal.mark_updated(r.extent().world(), r.id());
+            ++change_generation;
+        });
+        ++change_generation;
 
-        // Adds the region to the lookup map at all intersecting chunks
-        final var min = region.extent().min();
-        final var max = region.extent().max();
-
-        final var world_id = min.getWorld().getUID();
-        var regions_in_chunk = regions_in_chunk_in_world.computeIfAbsent(world_id, k -> new HashMap<>());
-
-        final var min_chunk = min.getChunk();
-        final var max_chunk = max.getChunk();
-
-        // Iterate all the chunks which intersect the region
-        for (int cx = min_chunk.getX(); cx <= max_chunk.getX(); ++cx) {
-            for (int cz = min_chunk.getZ(); cz <= max_chunk.getZ(); ++cz) {
-                final var chunk_key = Chunk.getChunkKey(cx, cz);
-                var possible_regions = regions_in_chunk.computeIfAbsent(chunk_key, k -> new ArrayList<>());
-                possible_regions.add(region);
-            }
-        }
+        // Adds the region to the lookup index at all intersecting chunks
+        final var world_id = region.extent().world();
+        region_index_in_world.computeIfAbsent(world_id, k -> new RegionIndex()).add(region);
 
         // Create map marker
         update_marker(region);
     }
 
     private void index_remove_region(final Region region) {
-        // Removes the region from the lookup map at all intersecting chunks
-        final var min = region.extent().min();
-        final var max = region.extent().max();
-
-        final var world_id = min.getWorld().getUID();
-        final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-        if (regions_in_chunk == null) {
+        // Removes the region from the lookup index at all intersecting chunks
+        final var world_id = region.extent().world();
+        final var region_index = region_index_in_world.get(world_id);
+        if (region_index == null) {
             return;
         }
 
-        final var min_chunk = min.getChunk();
-        final var max_chunk = max.getChunk();
-
-        // Iterate all the chunks which intersect the region
-        for (int cx = min_chunk.getX(); cx <= max_chunk.getX(); ++cx) {
-            for (int cz = min_chunk.getZ(); cz <= max_chunk.getZ(); ++cz) {
-                final var chunk_key = Chunk.getChunkKey(cx, cz);
-                final var possible_regions = regions_in_chunk.get(chunk_key);
-                if (possible_regions == null) {
-                    continue;
-                }
-                possible_regions.remove(region);
-            }
-        }
+        region_index.remove(region);
     }
 
-    public Region region_at(final Location loc) {
-        final var world_id = loc.getWorld().getUID();
-        final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-        if (regions_in_chunk == null) {
+    public Region region_at(final World world, int x, int y, int z) {
+        // Only coordinates are used, so this never needs to access (or load) any chunk.
+        final var region_index = region_index_in_world.get(world.getUID());
+        if (region_index == null) {
             return null;
         }
 
-        final var chunk_key = loc.getChunk().getChunkKey();
-        final var possible_regions = regions_in_chunk.get(chunk_key);
-        if (possible_regions == null) {
-            return null;
-        }
-
-        for (final var region : possible_regions) {
-            if (region.extent().is_inside(loc)) {
-                return region;
-            }
-        }
+        return region_index.region_at(x, y, z);
+    }
 
-        return null;
+    public Region region_at(final Location loc) {
+        return region_at(loc.getWorld(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
     }
 
     public Region region_at(final Block block) {
-        final var world_id = block.getWorld().getUID();
-        final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-        if (regions_in_chunk == null) {
-            return null;
-        }
-
-        final var chunk_key = block.getChunk().getChunkKey();
-        final var possible_regions = regions_in_chunk.get(chunk_key);
-        if (possible_regions == null) {
-            return null;
-        }
+        return region_at(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Returns an index matching all blocks inside a region for which the given predicate holds.
+     * Used to check many blocks at once via {@link BlockSetQuery}. The predicate is evaluated only
+     * once per region.
+     */
+    public BlockSetQuery.ChunkIndex blocks_in_regions(final Predicate<Region> predicate) {
+        final var predicate_cache = new HashMap<Region, Boolean>();
+        return (world, chunk_key) -> {
+            final var region_index = region_index_in_world.get(world.getUID());
+            if (region_index == null) {
+                return null;
+            }
 
-        for (final var region : possible_regions) {
-            if (region.extent().is_inside(block)) {
-                return region;
+            final var chunk_regions = region_index.regions_in_chunk(chunk_key);
+            if (chunk_regions == null) {
+                return null;
             }
-        }
 
-        return null;
+            return (x, y, z) -> {
+                final var region = chunk_regions.region_at(x, y, z);
+                return region != null && predicate_cache.computeIfAbsent(region, predicate::test);
+            };
+        };
     }
 
     public boolean may_administrate(final Player player, final RegionGroup group) {
         return (
             player.getUniqueId().equals(group.owner()) ||
-            (group != null && group.get_role(player.getUniqueId()).get_setting(RoleSetting.ADMIN))
+            (group != null && group.get_role_setting(player.getUniqueId(), RoleSetting.ADMIN))
         );
     }
 
@@ -705,21 +699,30 @@ public class Regions extends Module<Regions> {
         final var pdc_regions = data
             .getKeys()
             .stream()
-            .filter(key -> key.toString().startsWith(storage_region_prefix))
-            .map(key -> StringUtils.removeStart(key.toString(), storage_region_prefix))
-            .map(uuid -> UUID.fromString(uuid))
+            .map(NamespacedKey::toString)
+            .filter(key -> key.startsWith(storage_region_prefix))
+            .map(key -> UUID.fromString(key.substring(storage_region_prefix.length())))
             .collect(Collectors.toSet());
 
         for (final var region_id : pdc_regions) {
-            final var json_bytes = data.get(
+            storage_journal.mark_stored(world.getUID(), region_id);
+            final var bytes = data.get(
                 NamespacedKey.fromString(storage_region_prefix + region_id.toString()),
                 PersistentDataType.BYTE_ARRAY
             );
             try {
-                final var region = PersistentSerializer.from_json(Region.class, new JSONObject(new String(json_bytes)));
+                final var region = PersistentSerializer.from_bytes(Region.class, bytes);
+                // Freshly loaded regions match their stored state
+                region.invalidated = false;
                 index_region(region);
+                if (!PersistentSerializer.is_binary(bytes)) {
+                    // Rewrite legacy json entries in the binary format on the next save
+                    region.invalidate();
+                }
             } catch (IOException e) {
                 log.log(Level.SEVERE, "error while serializing persistent data!", e);
+                // Entries without a loaded region are removed on the next save
+                storage_journal.mark_deleted(world.getUID(), region_id);
             }
         }
         log.log(
@@ -741,7 +744,7 @@ public class Regions extends Module<Regions> {
             }
 
             index_region(region);
-            region.invalidated = true;
+            region.invalidate();
             converted += 1;
         }
 
@@ -766,41 +769,39 @@ public class Regions extends Module<Regions> {
     public void update_persistent_data(final World world) {
         final var data = world.getPersistentDataContainer();
         final var storage_region_prefix = STORAGE_REGIONS + ".";
+        final var world_id = world.getUID();
 
-        // Update invalidated regions
-        regions
-            .values()
-            .stream()
-            .filter(x -> x.invalidated && x.extent().world().equals(world.getUID()))
-            .forEach(region -> {
-                try {
-                    final var json = PersistentSerializer.to_json(Region.class, region);
-                    data.set(
-                        NamespacedKey.fromString(storage_region_prefix + region.id().toString()),
-                        PersistentDataType.BYTE_ARRAY,
-                        json.toString().getBytes()
-                    );
-                } catch (IOException e) {
-                    log.log(Level.SEVERE, "error while serializing persistent data!", e);
-                    return;
-                }
+        // Update invalidated regions. Only regions that were changed since
+        // the last save have been recorded, so we never need to visit all regions.
+        for (final var region_id : storage_journal.take_updated(world_id)) {
+            final var region = regions.get(region_id);
+            if (region == null || !region.invalidated) {
+                continue;
+            }
 
-                region.invalidated = false;
-            });
+            try {
+                data.set(
+                    NamespacedKey.fromString(storage_region_prefix + region_id.toString()),
+                    PersistentDataType.BYTE_ARRAY,
+                    PersistentSerializer.to_bytes(Region.class, region)
+                );
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "error while serializing persistent data!", e);
+                // Retry on the next save
+                storage_journal.mark_updated(world_id, region_id);
+                continue;
+            }
 
-        // Get all currently stored regions.
-        final var stored_regions = data
-            .getKeys()
-            .stream()
-            .filter(key -> key.toString().startsWith(storage_region_prefix))
-            .map(key -> StringUtils.removeStart(key.toString(), storage_region_prefix))
-            .map(uuid -> UUID.fromString(uuid))
-            .collect(Collectors.toSet());
+            region.invalidated = false;
+            storage_journal.mark_stored(world_id, region_id);
+        }
 
         // Remove all regions that no longer exist
-        Sets.difference(stored_regions, regions.keySet()).forEach(id ->
-            data.remove(NamespacedKey.fromString(storage_region_prefix + id.toString()))
-        );
+        for (final var region_id : storage_journal.take_deleted(world_id)) {
+            if (!regions.containsKey(region_id) && storage_journal.mark_unstored(world_id, region_id)) {
+                data.remove(NamespacedKey.fromString(storage_region_prefix + region_id.toString()));
+            }
+        }
     }
 
     @Override
@@ -1,5 +1,6 @@
 package org.oddlama.vane.regions.event;
 
+import java.util.List;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -21,6 +22,7 @@ import org.oddlama.vane.core.Listener;
 import org.oddlama.vane.core.module.Context;
 import org.oddlama.vane.regions.Regions;
 import org.oddlama.vane.regions.region.EnvironmentSetting;
+import org.oddlama.vane.util.BlockSetQuery;
 
 public class RegionEnvironmentSettingEnforcer extends Listener<Regions> {
 
@@ -52,16 +54,27 @@ public class RegionEnvironmentSettingEnforcer extends Listener<Regions> {
         return group.get_setting(setting) == check_against;
     }
 
+    private void remove_protected_exploded_blocks(final Object event, final List<Block> blocks) {
+        // Resolves the whole list chunk by chunk, so the cost depends on the
+        // number of touched chunks and regions instead of the number of blocks.
+        BlockSetQuery.of(event, blocks).remove_matching(
+            get_module()
+                .blocks_in_regions(region ->
+                    !region.region_group(get_module()).get_setting(EnvironmentSetting.EXPLOSIONS)
+                )
+        );
+    }
+
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void on_block_explode(final BlockExplodeEvent event) {
         // Prevent explosions from removing region blocks
-        event.blockList().removeIf(block -> check_setting_at(block, EnvironmentSetting.EXPLOSIONS, false));
+        remove_protected_exploded_blocks(event, event.blockList());
     }
 
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void on_entity_explode(final EntityExplodeEvent event) {
         // Prevent explosions from removing region blocks
-        event.blockList().removeIf(block -> check_setting_at(block, EnvironmentSetting.EXPLOSIONS, false));
+        remove_protected_exploded_blocks(event, event.blockList());
     }
 
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
@@ -37,7 +37,7 @@ public class RegionPortalRoleSettingEnforcer extends Listener<Regions> {
         }
 
         final var group = region.region_group(get_module());
-        return group.get_role(player.getUniqueId()).get_setting(setting) == check_against;
+        return group.get_role_setting(player.getUniqueId(), setting) == check_against;
     }
 
     public boolean check_setting_at(
@@ -52,7 +52,7 @@ public class RegionPortalRoleSettingEnforcer extends Listener<Regions> {
         }
 
         final var group = region.region_group(get_module());
-        return group.get_role(player.getUniqueId()).get_setting(setting) == check_against;
+        return group.get_role_setting(player.getUniqueId(), setting) == check_against;
     }
 
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
@@ -333,7 +333,7 @@ public class RegionGroupMenu extends ModuleComponent<Regions> {
                     return ClickResult.ERROR;
                 }
 
-                group.settings().put(setting, !group.get_setting(setting));
+                group.set_setting(setting, !group.get_setting(setting));
                 mark_persistent_storage_dirty();
                 menu.update();
                 return ClickResult.SUCCESS;
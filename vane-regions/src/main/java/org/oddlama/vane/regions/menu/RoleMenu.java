@@ -167,7 +167,7 @@ public class RoleMenu extends ModuleComponent<Regions> {
 
         final var is_admin =
             player.getUniqueId().equals(group.owner()) ||
-            group.get_role(player.getUniqueId()).get_setting(RoleSetting.ADMIN);
+            group.get_role_setting(player.getUniqueId(), RoleSetting.ADMIN);
 
         if (is_admin && role.role_type() == Role.RoleType.NORMAL) {
             role_menu.add(menu_item_rename(group, role));
@@ -266,7 +266,7 @@ public class RoleMenu extends ModuleComponent<Regions> {
                 (player2, m, p) -> {
                     all_players.remove(p);
                     m.update();
-                    group.player_to_role().put(p.getUniqueId(), role.id());
+                    group.assign_role(p.getUniqueId(), role.id());
                     return ClickResult.SUCCESS;
                 },
                 player2 -> menu.open(player2)
@@ -305,7 +305,7 @@ public class RoleMenu extends ModuleComponent<Regions> {
                 (player2, m, p) -> {
                     all_players.remove(p);
                     m.update();
-                    group.player_to_role().remove(p.getUniqueId());
+                    group.unassign_role(p.getUniqueId());
                     return ClickResult.SUCCESS;
                 },
                 player2 -> menu.open(player2)
@@ -335,7 +335,7 @@ public class RoleMenu extends ModuleComponent<Regions> {
                     return ClickResult.ERROR;
                 }
 
-                role.settings().put(setting, !role.get_setting(setting));
+                role.set_setting(setting, !role.get_setting(setting));
                 mark_persistent_storage_dirty();
                 menu.update();
                 return ClickResult.SUCCESS;
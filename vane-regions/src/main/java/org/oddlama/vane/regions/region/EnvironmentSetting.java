@@ -26,6 +26,11 @@ public enum EnvironmentSetting {
         return def;
     }
 
+    /** The bit representing this setting in setting masks. */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
     public boolean has_override() {
         return get_override() != 0;
     }
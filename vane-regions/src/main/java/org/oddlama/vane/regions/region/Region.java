@@ -1,10 +1,15 @@
 package org.oddlama.vane.regions.region;
 
+import static org.oddlama.vane.core.persistent.PersistentSerializer.from_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
+import static org.oddlama.vane.core.persistent.PersistentSerializer.to_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.oddlama.vane.regions.Regions;
@@ -34,6 +39,25 @@ public class Region {
         return region;
     }
 
+    public static void serialize_binary(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var region = (Region) o;
+        to_binary(UUID.class, region.id, out);
+        to_binary(String.class, region.name, out);
+        to_binary(UUID.class, region.owner, out);
+        to_binary(UUID.class, region.region_group, out);
+        to_binary(RegionExtent.class, region.extent, out);
+    }
+
+    public static Region deserialize_binary(final DataInput in) throws IOException {
+        final var region = new Region();
+        region.id = from_binary(UUID.class, in);
+        region.name = from_binary(String.class, in);
+        region.owner = from_binary(UUID.class, in);
+        region.region_group = from_binary(UUID.class, in);
+        region.extent = from_binary(RegionExtent.class, in);
+        return region;
+    }
+
     private Region() {}
 
     public Region(final String name, final UUID owner, final RegionExtent extent, final UUID region_group) {
@@ -52,17 +76,31 @@ public class Region {
 
     public boolean invalidated = true;
 
+    // Notified whenever the region is invalidated. Not a saved field.
+    private Consumer<Region> invalidation_listener = null;
+
     public UUID id() {
         return id;
     }
 
+    public void invalidation_listener(final Consumer<Region> invalidation_listener) {
+        this.invalidation_listener = invalidation_listener;
+    }
+
+    public void invalidate() {
+        this.invalidated = true;
+        if (invalidation_listener != null) {
+            invalidation_listener.accept(this);
+        }
+    }
+
     public String name() {
         return name;
     }
 
     public void name(final String name) {
         this.name = name;
-        this.invalidated = true;
+        invalidate();
     }
 
     public UUID owner() {
@@ -82,7 +120,7 @@ public class Region {
     public void region_group_id(final UUID region_group) {
         this.region_group = region_group;
         this.cached_region_group = null;
-        this.invalidated = true;
+        invalidate();
     }
 
     public RegionGroup region_group(final Regions regions) {
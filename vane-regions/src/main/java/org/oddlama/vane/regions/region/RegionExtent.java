@@ -1,8 +1,12 @@
 package org.oddlama.vane.regions.region;
 
+import static org.oddlama.vane.core.persistent.PersistentSerializer.from_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
+import static org.oddlama.vane.core.persistent.PersistentSerializer.to_binary;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.UUID;
 import org.bukkit.Chunk;
@@ -29,6 +33,18 @@ public class RegionExtent {
         return new RegionExtent(min, max);
     }
 
+    public static void serialize_binary(final DataOutput out, @NotNull final Object o) throws IOException {
+        final var region_extent = (RegionExtent) o;
+        to_binary(LazyBlock.class, region_extent.min, out);
+        to_binary(LazyBlock.class, region_extent.max, out);
+    }
+
+    public static RegionExtent deserialize_binary(final DataInput in) throws IOException {
+        final var min = from_binary(LazyBlock.class, in);
+        final var max = from_binary(LazyBlock.class, in);
+        return new RegionExtent(min, max);
+    }
+
     // Both inclusive, so we don't run into errors with
     // blocks outside the world (y<min_height || y>max_height).
     // Also, coordinates are sorted, so min is always the smaller coordinate on each axis.
@@ -79,6 +95,31 @@ public class RegionExtent {
         return max.block();
     }
 
+    // Raw coordinate accessors, which don't need to resolve the corner blocks.
+    public int min_x() {
+        return min.x();
+    }
+
+    public int min_y() {
+        return min.y();
+    }
+
+    public int min_z() {
+        return min.z();
+    }
+
+    public int max_x() {
+        return max.x();
+    }
+
+    public int max_y() {
+        return max.y();
+    }
+
+    public int max_z() {
+        return max.z();
+    }
+
     public boolean is_inside(final Location loc) {
         if (!loc.getWorld().equals(min().getWorld())) {
             return false;
@@ -5,41 +5,32 @@ import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.PersistentSerializer.Codec;
 import org.oddlama.vane.regions.Regions;
 
 public class RegionGroup {
 
+    private static final Codec ROLES_CODEC = PersistentSerializer.codec(RegionGroup.class, "roles");
+    private static final Codec PLAYER_TO_ROLE_CODEC = PersistentSerializer.codec(RegionGroup.class, "player_to_role");
+    private static final Codec SETTINGS_CODEC = PersistentSerializer.codec(RegionGroup.class, "settings");
+
     public static Object serialize(@NotNull final Object o) throws IOException {
         final var region_group = (RegionGroup) o;
         final var json = new JSONObject();
         json.put("id", to_json(UUID.class, region_group.id));
         json.put("name", to_json(String.class, region_group.name));
         json.put("owner", to_json(UUID.class, region_group.owner));
-        try {
-            json.put("roles", to_json(RegionGroup.class.getDeclaredField("roles"), region_group.roles));
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
-        try {
-            json.put(
-                "player_to_role",
-                to_json(RegionGroup.class.getDeclaredField("player_to_role"), region_group.player_to_role)
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        json.put("roles", ROLES_CODEC.to_json(region_group.roles));
+        json.put("player_to_role", PLAYER_TO_ROLE_CODEC.to_json(region_group.player_to_role));
         json.put("role_others", to_json(UUID.class, region_group.role_others));
-        try {
-            json.put("settings", to_json(RegionGroup.class.getDeclaredField("settings"), region_group.settings));
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
-
+        json.put("settings", SETTINGS_CODEC.to_json(region_group.settings));
         return json;
     }
 
@@ -50,31 +41,10 @@ public class RegionGroup {
         region_group.id = from_json(UUID.class, json.get("id"));
         region_group.name = from_json(String.class, json.get("name"));
         region_group.owner = from_json(UUID.class, json.get("owner"));
-        try {
-            region_group.roles = (Map<UUID, Role>) from_json(
-                RegionGroup.class.getDeclaredField("roles"),
-                json.get("roles")
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
-        try {
-            region_group.player_to_role = (Map<UUID, UUID>) from_json(
-                RegionGroup.class.getDeclaredField("player_to_role"),
-                json.get("player_to_role")
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        region_group.roles = (Map<UUID, Role>) ROLES_CODEC.from_json(json.get("roles"));
+        region_group.player_to_role = (Map<UUID, UUID>) PLAYER_TO_ROLE_CODEC.from_json(json.get("player_to_role"));
         region_group.role_others = from_json(UUID.class, json.get("role_others"));
-        try {
-            region_group.settings = (Map<EnvironmentSetting, Boolean>) from_json(
-                RegionGroup.class.getDeclaredField("settings"),
-                json.get("settings")
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        region_group.settings = (Map<EnvironmentSetting, Boolean>) SETTINGS_CODEC.from_json(json.get("settings"));
         return region_group;
     }
 
@@ -88,6 +58,20 @@ public class RegionGroup {
 
     private Map<EnvironmentSetting, Boolean> settings = new HashMap<>();
 
+    // The player-configured environment settings as a mask of EnvironmentSetting bits,
+    // rebuilt lazily from the settings map. Not a saved field.
+    private int settings_mask = 0;
+    private boolean settings_mask_valid = false;
+
+    // Cache of the effective role settings mask for each player (player → mask).
+    // Cleared when the role assignments of this group or any role settings change.
+    private final Map<UUID, Integer> player_role_masks = new HashMap<>();
+    private long player_role_masks_generation = -1;
+
+    // Incremented whenever a player is assigned to or removed from a role in any group,
+    // so that caches of what a player may access can be invalidated.
+    private static long membership_generation = 0;
+
     private RegionGroup() {}
 
     public RegionGroup(final String name, final UUID owner) {
@@ -106,10 +90,10 @@ public class RegionGroup {
 
         // Add "friends" role
         final var friends = new Role("Friends", Role.RoleType.NORMAL);
-        friends.settings().put(RoleSetting.BUILD, true);
-        friends.settings().put(RoleSetting.USE, true);
-        friends.settings().put(RoleSetting.CONTAINER, true);
-        friends.settings().put(RoleSetting.PORTAL, true);
+        friends.set_setting(RoleSetting.BUILD, true);
+        friends.set_setting(RoleSetting.USE, true);
+        friends.set_setting(RoleSetting.CONTAINER, true);
+        friends.set_setting(RoleSetting.PORTAL, true);
         this.add_role(friends);
 
         // Add "owner" to admins
@@ -138,31 +122,91 @@ public class RegionGroup {
     }
 
     public Map<EnvironmentSetting, Boolean> settings() {
-        return settings;
+        return Collections.unmodifiableMap(settings);
     }
 
-    public boolean get_setting(final EnvironmentSetting setting) {
-        if (setting.has_override()) {
-            return setting.get_override() == 1;
+    public void set_setting(final EnvironmentSetting setting, boolean value) {
+        settings.put(setting, value);
+        settings_mask_valid = false;
+    }
+
+    /** Returns the effective environment settings as a mask of EnvironmentSetting bits, with overrides applied. */
+    public int settings_mask() {
+        if (!settings_mask_valid) {
+            int mask = 0;
+            for (final var setting : EnvironmentSetting.values()) {
+                if (settings.getOrDefault(setting, setting.default_value())) {
+                    mask |= setting.bit();
+                }
+            }
+            settings_mask = mask;
+            settings_mask_valid = true;
         }
-        return settings.getOrDefault(setting, setting.default_value());
+        return Regions.environment_overrides.apply(settings_mask);
+    }
+
+    public boolean get_setting(final EnvironmentSetting setting) {
+        return (settings_mask() & setting.bit()) != 0;
     }
 
     public void add_role(final Role role) {
         this.roles.put(role.id(), role);
+        player_role_masks.clear();
     }
 
     public Map<UUID, UUID> player_to_role() {
-        return player_to_role;
+        return Collections.unmodifiableMap(player_to_role);
+    }
+
+    public void assign_role(final UUID player, final UUID role_id) {
+        player_to_role.put(player, role_id);
+        player_role_masks.remove(player);
+        ++membership_generation;
+    }
+
+    public void unassign_role(final UUID player) {
+        player_to_role.remove(player);
+        player_role_masks.remove(player);
+        ++membership_generation;
     }
 
     public Role get_role(final UUID player) {
         return roles.get(player_to_role.getOrDefault(player, role_others));
     }
 
+    /** Returns the effective settings mask of the given player's role in this group. */
+    public int role_settings_mask(final UUID player) {
+        final var generation = Role.permission_generation();
+        if (player_role_masks_generation != generation) {
+            player_role_masks.clear();
+            player_role_masks_generation = generation;
+        }
+
+        final var cached = player_role_masks.get(player);
+        if (cached != null) {
+            return cached;
+        }
+
+        final var role = get_role(player);
+        final var mask = role == null ? 0 : role.settings_mask();
+        player_role_masks.put(player, mask);
+        return mask;
+    }
+
+    /** Returns whether the given player's role in this group has the given setting. */
+    public boolean get_role_setting(final UUID player, final RoleSetting setting) {
+        return (role_settings_mask(player) & setting.bit()) != 0;
+    }
+
     public void remove_role(final UUID role_id) {
         player_to_role.values().removeIf(r -> role_id.equals(r));
         roles.remove(role_id);
+        player_role_masks.clear();
+        ++membership_generation;
+    }
+
+    public static long membership_generation() {
+        return membership_generation;
     }
 
     public Collection<Role> roles() {
@@ -4,11 +4,15 @@ import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.PersistentSerializer;
+import org.oddlama.vane.core.persistent.PersistentSerializer.Codec;
+import org.oddlama.vane.regions.Regions;
 
 public class Role {
 
@@ -18,17 +22,15 @@ public class Role {
         NORMAL,
     }
 
+    private static final Codec SETTINGS_CODEC = PersistentSerializer.codec(Role.class, "settings");
+
     public static Object serialize(@NotNull final Object o) throws IOException {
         final var role = (Role) o;
         final var json = new JSONObject();
         json.put("id", to_json(UUID.class, role.id));
         json.put("name", to_json(String.class, role.name));
         json.put("role_type", to_json(RoleType.class, role.role_type));
-        try {
-            json.put("settings", to_json(Role.class.getDeclaredField("settings"), role.settings));
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        json.put("settings", SETTINGS_CODEC.to_json(role.settings));
 
         return json;
     }
@@ -40,14 +42,7 @@ public class Role {
         role.id = from_json(UUID.class, json.get("id"));
         role.name = from_json(String.class, json.get("name"));
         role.role_type = from_json(RoleType.class, json.get("role_type"));
-        try {
-            role.settings = (Map<RoleSetting, Boolean>) from_json(
-                Role.class.getDeclaredField("settings"),
-                json.get("settings")
-            );
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Invalid field. This is a bug.", e);
-        }
+        role.settings = (Map<RoleSetting, Boolean>) SETTINGS_CODEC.from_json(json.get("settings"));
         return role;
     }
 
@@ -56,6 +51,15 @@ public class Role {
     private RoleType role_type;
     private Map<RoleSetting, Boolean> settings = new HashMap<>();
 
+    // The player-configured settings as a mask of RoleSetting bits,
+    // rebuilt lazily from the settings map. Not a saved field.
+    private int settings_mask = 0;
+    private boolean settings_mask_valid = false;
+
+    // Incremented whenever any role's settings or the global overrides change,
+    // so that cached per-player permission masks can be invalidated.
+    private static long permission_generation = 0;
+
     private Role() {}
 
     public Role(final String name, final RoleType role_type) {
@@ -84,14 +88,40 @@ public class Role {
     }
 
     public Map<RoleSetting, Boolean> settings() {
-        return settings;
+        return Collections.unmodifiableMap(settings);
     }
 
-    public boolean get_setting(final RoleSetting setting) {
-        if (setting.has_override()) {
-            return setting.get_override() == 1;
+    public void set_setting(final RoleSetting setting, boolean value) {
+        settings.put(setting, value);
+        settings_mask_valid = false;
+        invalidate_permission_masks();
+    }
+
+    /** Returns the effective settings of this role as a mask of RoleSetting bits, with global overrides applied. */
+    public int settings_mask() {
+        if (!settings_mask_valid) {
+            int mask = 0;
+            for (final var setting : RoleSetting.values()) {
+                if (settings.getOrDefault(setting, setting.default_value(false))) {
+                    mask |= setting.bit();
+                }
+            }
+            settings_mask = mask;
+            settings_mask_valid = true;
         }
-        return settings.getOrDefault(setting, setting.default_value(false));
+        return Regions.role_overrides.apply(settings_mask);
+    }
+
+    public boolean get_setting(final RoleSetting setting) {
+        return (settings_mask() & setting.bit()) != 0;
+    }
+
+    public static long permission_generation() {
+        return permission_generation;
+    }
+
+    public static void invalidate_permission_masks() {
+        ++permission_generation;
     }
 
     public String color() {
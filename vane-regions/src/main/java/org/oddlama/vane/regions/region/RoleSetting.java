@@ -24,6 +24,11 @@ public enum RoleSetting {
         return def;
     }
 
+    /** The bit representing this setting in setting masks. */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
     public boolean has_override() {
         return get_override() != 0;
     }
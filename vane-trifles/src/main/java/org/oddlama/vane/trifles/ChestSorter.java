@@ -1,8 +1,8 @@
 package org.oddlama.vane.trifles;
 
-import static org.oddlama.vane.util.ItemUtil.ItemStackComparator;
-
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.Tag;
 import org.bukkit.block.Barrel;
@@ -23,6 +23,7 @@ import org.oddlama.vane.annotation.config.ConfigLong;
 import org.oddlama.vane.core.Listener;
 import org.oddlama.vane.core.data.CooldownData;
 import org.oddlama.vane.core.module.Context;
+import org.oddlama.vane.util.ItemUtil.ItemStackSorter;
 import org.oddlama.vane.util.StorageUtil;
 
 public class ChestSorter extends Listener<Trifles> {
@@ -68,7 +69,15 @@ public class ChestSorter extends Listener<Trifles> {
         this.cooldown_data = new CooldownData(LAST_SORT_TIME, config_cooldown);
     }
 
-    private void sort_inventory(final Inventory inventory) {
+    private void sort_inventories(final List<Inventory> inventories) {
+        // A single sorter reuses its key buffers for all inventories
+        final var sorter = new ItemStackSorter();
+        for (final var inventory : inventories) {
+            sort_inventory(sorter, inventory);
+        }
+    }
+
+    private void sort_inventory(final ItemStackSorter sorter, final Inventory inventory) {
         // Find number of non-null item stacks
         final var saved_contents = inventory.getStorageContents();
         int non_null = 0;
@@ -103,20 +112,20 @@ public class ChestSorter extends Listener<Trifles> {
 
         // Sort
         final var contents = inventory.getStorageContents();
-        Arrays.sort(contents, new ItemStackComparator());
+        sorter.sort(contents);
         inventory.setStorageContents(contents);
     }
 
-    private void sort_container(final Container container) {
+    private Inventory sortable_container_inventory(final Container container) {
         // Check cooldown
         if (!cooldown_data.check_or_update_cooldown(container)) {
-            return;
+            return null;
         }
 
-        sort_inventory(container.getInventory());
+        return container.getInventory();
     }
 
-    private void sort_chest(final Chest chest) {
+    private Inventory sortable_chest_inventory(final Chest chest) {
         final var inventory = chest.getInventory();
 
         // Get persistent data
@@ -124,7 +133,7 @@ public class ChestSorter extends Listener<Trifles> {
         if (inventory instanceof DoubleChestInventory) {
             final var left_side = (((DoubleChestInventory) inventory).getLeftSide()).getHolder();
             if (!(left_side instanceof Chest)) {
-                return;
+                return null;
             }
             persistent_chest = (Chest) left_side;
         } else {
@@ -133,7 +142,7 @@ public class ChestSorter extends Listener<Trifles> {
 
         // Check cooldown
         if (!cooldown_data.check_or_update_cooldown(persistent_chest)) {
-            return;
+            return null;
         }
 
         if (persistent_chest != chest) {
@@ -141,7 +150,7 @@ public class ChestSorter extends Listener<Trifles> {
             persistent_chest.update(true, false);
         }
 
-        sort_inventory(inventory);
+        return inventory;
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = false) // ignoreCancelled = false to catch right-click-air events
@@ -204,19 +213,33 @@ public class ChestSorter extends Listener<Trifles> {
             }
         }
 
-        // Find chests in configured radius and sort them.
+        // Find chests in configured radius and sort them all at once.
+        final var inventories = new ArrayList<Inventory>();
         for (int x = -rx; x <= rx; ++x) {
             for (int y = -ry; y <= ry; ++y) {
                 for (int z = -rz; z <= rz; ++z) {
                     final var block = root_block.getRelative(x, y, z);
+                    // Check the type first, creating a block state snapshot is expensive
+                    final var type = block.getType();
+                    if (type != Material.CHEST && type != Material.TRAPPED_CHEST && type != Material.BARREL) {
+                        continue;
+                    }
+
                     final var state = block.getState();
+                    Inventory inventory = null;
                     if (state instanceof Chest) {
-                        sort_chest((Chest) state);
+                        inventory = sortable_chest_inventory((Chest) state);
                     } else if (state instanceof Barrel) {
-                        sort_container((Barrel) state);
+                        inventory = sortable_container_inventory((Barrel) state);
+                    }
+
+                    if (inventory != null) {
+                        inventories.add(inventory);
                     }
                 }
             }
         }
+
+        sort_inventories(inventories);
     }
 }
@@ -1,19 +1,35 @@
 package org.oddlama.vane.trifles;
 
 import io.papermc.paper.event.entity.EntityMoveEvent;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
 import net.minecraft.world.entity.monster.Monster;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.potion.PotionEffectType;
 import org.oddlama.vane.annotation.config.ConfigBoolean;
 import org.oddlama.vane.core.Listener;
+import org.oddlama.vane.core.functional.Consumer2;
 
 public class FastWalkingListener extends Listener<Trifles> {
 
     FastWalkingGroup fast_walking;
 
+    private final Consumer2<Player, PlayerMoveEvent> on_block_change = this::on_player_block_change;
+
+    // Remaining duration below which the effect is renewed, so it never lapses between moves.
+    private static final int RENEW_BEFORE_TICKS = 10;
+
+    // Players that were on a fast walking material when the block below them last changed.
+    // The effect may run out before they leave that block, so it is renewed on their moves.
+    private final Set<UUID> players_on_material = new HashSet<>();
+
     public FastWalkingListener(FastWalkingGroup context) {
         super(context);
         this.fast_walking = context;
@@ -31,29 +47,78 @@ public class FastWalkingListener extends Listener<Trifles> {
     )
     public boolean config_players_only_speedwalk;
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void on_player_move(final PlayerMoveEvent event) {
+    @Override
+    protected void on_enable() {
+        super.on_enable();
+        get_module().core.movement_dispatcher.subscribe_block_change(on_block_change);
+    }
+
+    @Override
+    protected void on_disable() {
+        get_module().core.movement_dispatcher.unsubscribe(on_block_change);
+        players_on_material.clear();
+        super.on_disable();
+    }
+
+    private static LivingEntity effect_entity(final Player player) {
+        if (player.isInsideVehicle() && player.getVehicle() instanceof LivingEntity vehicle) {
+            return vehicle;
+        }
+        return player;
+    }
+
+    // Players only need to be inspected when the block below them changes
+    private void on_player_block_change(final Player player, final PlayerMoveEvent event) {
+        players_on_material.remove(player.getUniqueId());
+
         // Players mustn't be flying
-        final var player = event.getPlayer();
         if (player.isGliding()) {
             return;
         }
 
-        LivingEntity effect_entity = player;
-        if (player.isInsideVehicle() && player.getVehicle() instanceof LivingEntity vehicle) {
-            effect_entity = vehicle;
-        }
+        final var effect_entity = effect_entity(player);
 
         // Inspect a block type just a little below
-        var block = effect_entity.getLocation().clone().subtract(0.0, 0.1, 0.0).getBlock();
+        var block = effect_entity.getLocation().subtract(0.0, 0.1, 0.0).getBlock();
         if (!fast_walking.config_materials.contains(block.getType())) {
             return;
         }
 
         // Apply potion effect
+        players_on_material.add(player.getUniqueId());
         effect_entity.addPotionEffect(fast_walking.walk_speed_effect);
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_player_move(final PlayerMoveEvent event) {
+        // Renew the effect before it runs out while the player is still on the same block,
+        // e.g. when standing still or for durations shorter than crossing a block.
+        if (players_on_material.isEmpty()) {
+            return;
+        }
+
+        final var player = event.getPlayer();
+        if (!players_on_material.contains(player.getUniqueId()) || player.isGliding()) {
+            return;
+        }
+
+        final var effect_entity = effect_entity(player);
+        final var effect = effect_entity.getPotionEffect(PotionEffectType.SPEED);
+        if (
+            effect == null ||
+            effect.getAmplifier() < fast_walking.walk_speed_effect.getAmplifier() ||
+            (effect.getAmplifier() == fast_walking.walk_speed_effect.getAmplifier() &&
+                effect.getDuration() < RENEW_BEFORE_TICKS)
+        ) {
+            effect_entity.addPotionEffect(fast_walking.walk_speed_effect);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_player_quit(final PlayerQuitEvent event) {
+        players_on_material.remove(event.getPlayer().getUniqueId());
+    }
+
     // This is fired for entities except players.
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void on_entity_move(final EntityMoveEvent event) {
@@ -1,27 +1,47 @@
 package org.oddlama.vane.trifles;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.UUID;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.SoundCategory;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
+import org.bukkit.block.DoubleChest;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.inventory.BrewEvent;
 import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.FurnaceSmeltEvent;
 import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.LootGenerateEvent;
+import org.bukkit.inventory.BlockInventoryHolder;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.oddlama.vane.annotation.config.ConfigBoolean;
 import org.oddlama.vane.annotation.config.ConfigInt;
 import org.oddlama.vane.core.Listener;
+import org.oddlama.vane.core.functional.Consumer1;
 import org.oddlama.vane.core.module.Context;
+import org.oddlama.vane.util.LongObjectMap;
 import org.oddlama.vane.util.StorageUtil;
 
 public class ItemFinder extends Listener<Trifles> {
@@ -48,9 +68,21 @@ public class ItemFinder extends Listener<Trifles> {
     )
     public boolean config_require_permission;
 
+    @ConfigInt(
+        def = 60,
+        min = 0,
+        max = 3600,
+        desc = "For how many seconds a summary of the item types in the containers of a chunk is kept, so searches can skip chunks without any matching item. Changes by players, hoppers, furnaces and brewing stands are tracked, but changes made by other plugins are only noticed once the summary expires. Set to 0 to disable."
+    )
+    public int config_chunk_summary_seconds;
+
     // This permission allows players to use the shift+rightclick.
     public final Permission use_item_find_shortcut_permission;
 
+    // world_id → chunk_key → summary of the item types in the containers of that chunk.
+    // Only accessed from the main thread.
+    private final HashMap<UUID, LongObjectMap<ChunkSummary>> chunk_summaries = new HashMap<>();
+
     public ItemFinder(Context<Trifles> context) {
         super(
             context.group(
@@ -67,6 +99,18 @@ public class ItemFinder extends Listener<Trifles> {
         get_module().register_permission(use_item_find_shortcut_permission);
     }
 
+    @Override
+    protected void on_config_change() {
+        super.on_config_change();
+        chunk_summaries.clear();
+    }
+
+    @Override
+    protected void on_disable() {
+        super.on_disable();
+        chunk_summaries.clear();
+    }
+
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void on_player_click_inventory(final InventoryClickEvent event) {
         if (!(event.getWhoClicked() instanceof Player player)) {
@@ -90,13 +134,11 @@ public class ItemFinder extends Listener<Trifles> {
         }
 
         event.setCancelled(true);
-        if (find_item(player, item.getType())) {
-            get_module().schedule_next_tick(player::closeInventory);
-        }
-    }
-
-    private boolean is_container(final Block block) {
-        return block.getState() instanceof Container;
+        find_item(player, item.getType(), found -> {
+            if (found) {
+                player.closeInventory();
+            }
+        });
     }
 
     private void indicate_match_at(@NotNull Player player, @NotNull Location location) {
@@ -106,24 +148,59 @@ public class ItemFinder extends Listener<Trifles> {
         player.spawnParticle(Particle.CAMPFIRE_SIGNAL_SMOKE, location, 70, 0.2, 0.2, 0.2, 0.0);
     }
 
-    public boolean find_item(@NotNull final Player player, @NotNull final Material material) {
-        // Find chests in configured radius and sort them.
-        boolean any_found = false;
+    public void find_item(@NotNull final Player player, @NotNull final Material material) {
+        find_item(player, material, null);
+    }
+
+    /**
+     * Searches nearby containers (and possibly entities) for the given material. The inventories
+     * are captured on the main thread, matched asynchronously, and the result is shown to the
+     * player on the main thread afterwards, where the optional callback is also called.
+     */
+    public void find_item(
+        @NotNull final Player player,
+        @NotNull final Material material,
+        @Nullable final Consumer1<Boolean> on_result
+    ) {
+        final var snapshot = capture(player, material.ordinal());
+        final var module = get_module();
+        final var scheduler = module.getServer().getScheduler();
+        scheduler.runTaskAsynchronously(module, () -> {
+            final var matches = snapshot.match(material.ordinal());
+            if (module.isEnabled()) {
+                scheduler.runTask(module, () -> show_matches(player, snapshot, matches, on_result));
+            }
+        });
+    }
+
+    private Snapshot capture(final Player player, int material_id) {
         final var world = player.getWorld();
+        final var snapshot = new Snapshot(world);
         final var origin_chunk = player.getChunk();
+        final var now = System.currentTimeMillis();
         for (int cx = origin_chunk.getX() - config_radius; cx <= origin_chunk.getX() + config_radius; ++cx) {
             for (int cz = origin_chunk.getZ() - config_radius; cz <= origin_chunk.getZ() + config_radius; ++cz) {
                 if (!world.isChunkLoaded(cx, cz)) {
                     continue;
                 }
                 final var chunk = world.getChunkAt(cx, cz);
-                for (final var tile_entity : chunk.getTileEntities(this::is_container, false)) {
-                    if (tile_entity instanceof Container container) {
-                        if (container.getInventory().contains(material)) {
-                            indicate_match_at(player, container.getLocation().add(0.5, 0.5, 0.5));
-                            any_found = true;
+                final var summary = summary(world, chunk.getChunkKey(), now);
+                if (summary == null || summary.may_contain(material_id)) {
+                    final var new_summary = config_chunk_summary_seconds > 0 ? new ChunkSummary(now) : null;
+                    // Without snapshots, so the tile entities aren't copied
+                    for (final var tile_entity : chunk.getTileEntities(false)) {
+                        if (tile_entity instanceof Container container) {
+                            final var x = tile_entity.getX() + 0.5;
+                            final var y = tile_entity.getY() + 0.5;
+                            final var z = tile_entity.getZ() + 0.5;
+                            snapshot.add(x, y, z, container.getInventory(), new_summary);
                         }
                     }
+                    if (new_summary != null) {
+                        chunk_summaries
+                            .computeIfAbsent(world.getUID(), k -> new LongObjectMap<>())
+                            .put(chunk.getChunkKey(), new_summary);
+                    }
                 }
                 if (config_search_entities) {
                     for (final var entity : chunk.getEntities()) {
@@ -133,22 +210,238 @@ public class ItemFinder extends Listener<Trifles> {
                         }
 
                         if (entity instanceof InventoryHolder holder) {
-                            if (holder.getInventory().contains(material)) {
-                                indicate_match_at(player, entity.getLocation());
-                                any_found = true;
-                            }
+                            final var loc = entity.getLocation();
+                            snapshot.add(loc.getX(), loc.getY(), loc.getZ(), holder.getInventory(), null);
                         }
                     }
                 }
             }
         }
+        return snapshot;
+    }
 
+    private void show_matches(
+        final Player player,
+        final Snapshot snapshot,
+        final int[] matches,
+        @Nullable final Consumer1<Boolean> on_result
+    ) {
+        // The player may have left or changed worlds in the meantime
+        if (!player.isOnline() || player.getWorld() != snapshot.world) {
+            return;
+        }
+
+        for (final var i : matches) {
+            indicate_match_at(player, snapshot.location(i));
+        }
+
+        final var any_found = matches.length > 0;
         if (any_found) {
             player.playSound(player, Sound.BLOCK_AMETHYST_BLOCK_HIT, SoundCategory.MASTER, 1.0f, 1.3f);
         } else {
             player.playSound(player, Sound.UI_BUTTON_CLICK, SoundCategory.MASTER, 1.0f, 5.0f);
         }
 
-        return any_found;
+        if (on_result != null) {
+            on_result.apply(any_found);
+        }
+    }
+
+    private @Nullable ChunkSummary summary(final World world, long chunk_key, long now) {
+        final var summaries = chunk_summaries.get(world.getUID());
+        if (summaries == null) {
+            return null;
+        }
+
+        final var summary = summaries.get(chunk_key);
+        if (summary != null && now - summary.created > config_chunk_summary_seconds * 1000L) {
+            summaries.remove(chunk_key);
+            return null;
+        }
+        return summary;
+    }
+
+    private void invalidate(final Location location) {
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        final var summaries = chunk_summaries.get(location.getWorld().getUID());
+        if (summaries != null) {
+            summaries.remove(Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        }
+    }
+
+    private void invalidate(final Block block) {
+        invalidate(block.getLocation());
+    }
+
+    private void invalidate(@Nullable final Inventory inventory) {
+        if (inventory == null || chunk_summaries.isEmpty()) {
+            return;
+        }
+
+        final var holder = inventory.getHolder(false);
+        if (holder instanceof DoubleChest double_chest) {
+            // Both halves of a double chest may be in different chunks
+            if (double_chest.getLeftSide() instanceof BlockState left) {
+                invalidate(left.getLocation());
+            }
+            if (double_chest.getRightSide() instanceof BlockState right) {
+                invalidate(right.getLocation());
+            }
+        } else if (holder instanceof BlockInventoryHolder) {
+            invalidate(inventory.getLocation());
+        }
+    }
+
+    // Any change to the contents of a container drops the summary of its chunk.
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_inventory_click(final InventoryClickEvent event) {
+        invalidate(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_inventory_drag(final InventoryDragEvent event) {
+        invalidate(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_inventory_move_item(final InventoryMoveItemEvent event) {
+        // Removing items can't turn a summary wrong, so only the destination matters
+        invalidate(event.getDestination());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_inventory_pickup_item(final InventoryPickupItemEvent event) {
+        invalidate(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_furnace_smelt(final FurnaceSmeltEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_brew(final BrewEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_loot_generate(final LootGenerateEvent event) {
+        if (event.getInventoryHolder() instanceof BlockInventoryHolder holder) {
+            invalidate(holder.getBlock());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void on_block_place(final BlockPlaceEvent event) {
+        // Placed containers (e.g. shulker boxes) may bring their own contents
+        if (!chunk_summaries.isEmpty()) {
+            invalidate(event.getBlockPlaced());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void on_chunk_unload(final ChunkUnloadEvent event) {
+        final var chunk = event.getChunk();
+        final var summaries = chunk_summaries.get(chunk.getWorld().getUID());
+        if (summaries != null) {
+            summaries.remove(chunk.getChunkKey());
+        }
+    }
+
+    /** The set of item types that were present in the containers of a chunk at some point in time. */
+    private static class ChunkSummary {
+
+        private static final int MATERIAL_COUNT = Material.values().length;
+
+        private final long created;
+        private final long[] materials = new long[(MATERIAL_COUNT + 63) >> 6];
+
+        public ChunkSummary(long created) {
+            this.created = created;
+        }
+
+        public void add(int material_id) {
+            materials[material_id >> 6] |= 1L << material_id;
+        }
+
+        public boolean may_contain(int material_id) {
+            return (materials[material_id >> 6] & (1L << material_id)) != 0;
+        }
+    }
+
+    /**
+     * The material ids of all non-empty slots of the captured inventories, together with the
+     * location at which each inventory is indicated. Filled on the main thread, and only read
+     * afterwards, so it can safely be matched on another thread.
+     */
+    private static class Snapshot {
+
+        private final World world;
+        private double[] locations = new double[3 * 16];
+        private int[] slot_ends = new int[16];
+        private short[] slots = new short[256];
+        private int inventory_count = 0;
+        private int slot_count = 0;
+
+        public Snapshot(final World world) {
+            this.world = world;
+        }
+
+        public void add(double x, double y, double z, final Inventory inventory, @Nullable ChunkSummary summary) {
+            final var start = slot_count;
+            for (final var item : inventory.getContents()) {
+                if (item == null) {
+                    continue;
+                }
+
+                final var material_id = item.getType().ordinal();
+                if (slot_count == slots.length) {
+                    slots = Arrays.copyOf(slots, slot_count * 2);
+                }
+                slots[slot_count++] = (short) material_id;
+                if (summary != null) {
+                    summary.add(material_id);
+                }
+            }
+
+            // Empty inventories can't match
+            if (slot_count == start) {
+                return;
+            }
+
+            if (inventory_count == slot_ends.length) {
+                slot_ends = Arrays.copyOf(slot_ends, inventory_count * 2);
+                locations = Arrays.copyOf(locations, 3 * inventory_count * 2);
+            }
+            locations[3 * inventory_count] = x;
+            locations[3 * inventory_count + 1] = y;
+            locations[3 * inventory_count + 2] = z;
+            slot_ends[inventory_count++] = slot_count;
+        }
+
+        /** Returns the indices of all inventories containing the given material id. */
+        public int[] match(int material_id) {
+            final var matches = new int[inventory_count];
+            var count = 0;
+            var slot = 0;
+            for (int i = 0; i < inventory_count; ++i) {
+                final var end = slot_ends[i];
+                for (; slot < end; ++slot) {
+                    if (slots[slot] == material_id) {
+                        matches[count++] = i;
+                        break;
+                    }
+                }
+                slot = end;
+            }
+            return Arrays.copyOf(matches, count);
+        }
+
+        public Location location(int index) {
+            return new Location(world, locations[3 * index], locations[3 * index + 1], locations[3 * index + 2]);
+        }
     }
 }
@@ -5,18 +5,20 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import net.kyori.adventure.text.Component;
-import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.Nameable;
 import org.bukkit.block.Container;
 import org.bukkit.block.ShulkerBox;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BlockStateMeta;
@@ -32,10 +34,13 @@ import org.oddlama.vane.trifles.items.storage.Pouch;
 
 public class StorageGroup extends Listener<Trifles> {
 
-    private Map<Inventory, Pair<UUID, ItemStack>> open_block_state_inventories = Collections.synchronizedMap(
-        new HashMap<Inventory, Pair<UUID, ItemStack>>()
+    private Map<Inventory, OpenStorage> open_block_state_inventories = Collections.synchronizedMap(
+        new HashMap<Inventory, OpenStorage>()
     );
 
+    // Whether a write-back of all dirty storage inventories is scheduled for the next tick
+    private boolean flush_scheduled = false;
+
     @LangMessage
     public TranslatedMessage lang_open_stacked_item;
 
@@ -43,6 +48,12 @@ public class StorageGroup extends Listener<Trifles> {
         super(context.group("storage", "Extensions to storage related stuff will be grouped under here."));
     }
 
+    @Override
+    protected void on_disable() {
+        flush_all();
+        super.on_disable();
+    }
+
     @SuppressWarnings("deprecation")
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void on_place_item_in_storage_inventory(InventoryClickEvent event) {
@@ -100,7 +111,7 @@ public class StorageGroup extends Listener<Trifles> {
         }
 
         final var owner_and_item = open_block_state_inventories.get(event.getInventory());
-        if (owner_and_item == null || !owner_and_item.getLeft().equals(player.getUniqueId())) {
+        if (owner_and_item == null || !owner_and_item.owner.equals(player.getUniqueId())) {
             return;
         }
 
@@ -150,7 +161,7 @@ public class StorageGroup extends Listener<Trifles> {
         }
 
         final var owner_and_item = open_block_state_inventories.get(event.getInventory());
-        if (owner_and_item == null || !owner_and_item.getLeft().equals(player.getUniqueId())) {
+        if (owner_and_item == null || !owner_and_item.owner.equals(player.getUniqueId())) {
             return;
         }
 
@@ -163,6 +174,9 @@ public class StorageGroup extends Listener<Trifles> {
         }
     }
 
+    // Clicks and drags only mark the storage inventory as dirty. The storage item is written once in
+    // the next tick (when the click has also been applied), or earlier if the item could leave the player.
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void save_after_click(InventoryClickEvent event) {
         if (!(event.getWhoClicked() instanceof Player player)) {
@@ -170,11 +184,23 @@ public class StorageGroup extends Listener<Trifles> {
         }
 
         final var owner_and_item = open_block_state_inventories.get(event.getInventory());
-        if (owner_and_item == null || !owner_and_item.getLeft().equals(player.getUniqueId())) {
+        if (owner_and_item == null || !owner_and_item.owner.equals(player.getUniqueId())) {
             return;
         }
 
-        update_storage_item(owner_and_item.getRight(), event.getInventory());
+        switch (event.getAction()) {
+            case DROP_ALL_CURSOR:
+            case DROP_ALL_SLOT:
+            case DROP_ONE_CURSOR:
+            case DROP_ONE_SLOT:
+                // The storage item itself may be dropped
+                update_storage_item(owner_and_item.item, event.getInventory());
+                break;
+            default:
+                break;
+        }
+
+        mark_dirty(owner_and_item);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -184,24 +210,82 @@ public class StorageGroup extends Listener<Trifles> {
         }
 
         final var owner_and_item = open_block_state_inventories.get(event.getInventory());
-        if (owner_and_item == null || !owner_and_item.getLeft().equals(player.getUniqueId())) {
+        if (owner_and_item == null || !owner_and_item.owner.equals(player.getUniqueId())) {
             return;
         }
 
-        update_storage_item(owner_and_item.getRight(), event.getInventory());
+        mark_dirty(owner_and_item);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void save_after_close(InventoryCloseEvent event) {
         final var owner_and_item = open_block_state_inventories.get(event.getInventory());
-        if (owner_and_item == null || !owner_and_item.getLeft().equals(event.getPlayer().getUniqueId())) {
+        if (owner_and_item == null || !owner_and_item.owner.equals(event.getPlayer().getUniqueId())) {
             return;
         }
 
-        update_storage_item(owner_and_item.getRight(), event.getInventory());
+        update_storage_item(owner_and_item.item, event.getInventory());
+        owner_and_item.dirty = false;
         open_block_state_inventories.remove(event.getInventory());
     }
 
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void save_before_death(PlayerDeathEvent event) {
+        flush_player(event.getEntity().getUniqueId(), false);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void save_before_drop(PlayerDropItemEvent event) {
+        flush_player(event.getPlayer().getUniqueId(), false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void save_after_quit(PlayerQuitEvent event) {
+        flush_player(event.getPlayer().getUniqueId(), true);
+    }
+
+    private void mark_dirty(@NotNull OpenStorage storage) {
+        storage.dirty = true;
+        if (!flush_scheduled) {
+            flush_scheduled = true;
+            schedule_next_tick(this::flush_all);
+        }
+    }
+
+    private void flush_all() {
+        flush_scheduled = false;
+        synchronized (open_block_state_inventories) {
+            for (final var entry : open_block_state_inventories.entrySet()) {
+                flush(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Writes back all dirty storage inventories of the given player, and optionally forgets them.
+    private void flush_player(@NotNull UUID owner, boolean remove) {
+        synchronized (open_block_state_inventories) {
+            final var it = open_block_state_inventories.entrySet().iterator();
+            while (it.hasNext()) {
+                final var entry = it.next();
+                if (!entry.getValue().owner.equals(owner)) {
+                    continue;
+                }
+
+                flush(entry.getKey(), entry.getValue());
+                if (remove) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void flush(@NotNull Inventory inventory, @NotNull OpenStorage storage) {
+        if (storage.dirty) {
+            storage.dirty = false;
+            update_storage_item(storage.item, inventory);
+        }
+    }
+
     private boolean is_storage_item(@Nullable ItemStack item) {
         if (item == null) {
             return false;
@@ -263,8 +347,21 @@ public class StorageGroup extends Listener<Trifles> {
         transient_inventory.setContents(container.getInventory().getContents());
 
         // Open inventory
-        open_block_state_inventories.put(transient_inventory, Pair.of(player.getUniqueId(), item));
+        open_block_state_inventories.put(transient_inventory, new OpenStorage(player.getUniqueId(), item));
         player.openInventory(transient_inventory);
         return true;
     }
+
+    private static class OpenStorage {
+
+        private final UUID owner;
+        private final ItemStack item;
+        // Whether the inventory changed since the item was last written
+        private boolean dirty = false;
+
+        public OpenStorage(final UUID owner, final ItemStack item) {
+            this.owner = owner;
+            this.item = item;
+        }
+    }
 }
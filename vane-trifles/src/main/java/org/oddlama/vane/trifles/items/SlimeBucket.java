@@ -11,6 +11,7 @@ import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.SoundCategory;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
 import org.bukkit.entity.Slime;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
@@ -22,6 +23,7 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.inventory.ItemStack;
 import org.oddlama.vane.annotation.item.VaneItem;
+import org.oddlama.vane.core.functional.Consumer2;
 import org.oddlama.vane.core.item.CustomItem;
 import org.oddlama.vane.core.module.Context;
 import org.oddlama.vane.core.resourcepack.ResourcePackGenerator;
@@ -34,11 +36,24 @@ public class SlimeBucket extends CustomItem<Trifles> {
     private static final int CUSTOM_MODEL_DATA_QUIET = 0x760014;
     private static final int CUSTOM_MODEL_DATA_JUMPY = 0x760015;
     private HashSet<UUID> players_in_slime_chunks = new HashSet<>();
+    private final Consumer2<Player, PlayerMoveEvent> on_chunk_change = this::on_player_chunk_change;
 
     public SlimeBucket(Context<Trifles> context) {
         super(context);
     }
 
+    @Override
+    protected void on_enable() {
+        super.on_enable();
+        get_module().core.movement_dispatcher.subscribe_chunk_change(on_chunk_change);
+    }
+
+    @Override
+    protected void on_disable() {
+        get_module().core.movement_dispatcher.unsubscribe(on_chunk_change);
+        super.on_disable();
+    }
+
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void on_player_interact_entity(final PlayerInteractEntityEvent event) {
         final var entity = event.getRightClicked();
@@ -123,9 +138,8 @@ public class SlimeBucket extends CustomItem<Trifles> {
         }
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void on_player_move(final PlayerMoveEvent event) {
-        final var player = event.getPlayer();
+    // The slime chunk state can only change when the player enters another chunk
+    private void on_player_chunk_change(final Player player, final PlayerMoveEvent event) {
         final var in_slime_chunk = event.getTo().getChunk().isSlimeChunk();
         final var in_set = players_in_slime_chunks.contains(player.getUniqueId());
 
@@ -21,6 +21,7 @@ import org.bstats.velocity.Metrics;
 import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.log.slf4jCompatLogger;
 import org.oddlama.vane.proxycore.util.Version;
+import org.oddlama.velocity.commands.Health;
 import org.oddlama.velocity.commands.Maintenance;
 import org.oddlama.velocity.commands.Ping;
 import org.oddlama.velocity.compat.VelocityCompatProxyServer;
@@ -85,6 +86,7 @@ public class Velocity extends VaneProxyPlugin {
         event_manager.register(this, new ProxyDisconnectListener(this));
 
         maintenance.load();
+        health_checker.start();
 
         CommandManager command_manager = velocity_server.getCommandManager();
 
@@ -94,6 +96,9 @@ public class Velocity extends VaneProxyPlugin {
         CommandMeta maintenance_meta = command_manager.metaBuilder("maintenance").build();
         command_manager.register(maintenance_meta, new Maintenance(this));
 
+        CommandMeta health_meta = command_manager.metaBuilder("health").build();
+        command_manager.register(health_meta, new Health(this));
+
         velocity_server.getChannelRegistrar().register(CHANNEL);
 
         if (!config.multiplexer_by_id.isEmpty()) {
@@ -116,6 +121,7 @@ public class Velocity extends VaneProxyPlugin {
     }
 
     private void disable() {
+        health_checker.stop();
         velocity_server.getEventManager().unregisterListeners(this);
 
         velocity_server.getChannelRegistrar().unregister(CHANNEL);
@@ -0,0 +1,20 @@
+package org.oddlama.velocity.commands;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import org.oddlama.vane.proxycore.commands.ProxyHealthCommand;
+import org.oddlama.velocity.Velocity;
+import org.oddlama.velocity.compat.VelocityCompatProxyCommandSender;
+
+public class Health implements SimpleCommand {
+
+    ProxyHealthCommand cmd;
+
+    public Health(final Velocity plugin) {
+        this.cmd = new ProxyHealthCommand("vane_proxy.commands.health", plugin);
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        cmd.execute(new VelocityCompatProxyCommandSender(invocation.source()), invocation.arguments());
+    }
+}
@@ -6,6 +6,7 @@ import java.util.UUID;
 import net.kyori.adventure.text.Component;
 import org.oddlama.vane.proxycore.ProxyPlayer;
 import org.oddlama.vane.proxycore.ProxyServer;
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 import org.oddlama.vane.proxycore.scheduler.ProxyTaskScheduler;
 import org.oddlama.velocity.compat.scheduler.VelocityCompatProxyTaskScheduler;
 
@@ -32,6 +33,15 @@ public class VelocityCompatProxyServer implements ProxyServer {
         return proxy.getAllPlayers().stream().map(it -> (ProxyPlayer) new VelocityCompatProxyPlayer(it)).toList();
     }
 
+    @Override
+    public Collection<IVaneProxyServerInfo> get_servers() {
+        return proxy
+            .getAllServers()
+            .stream()
+            .map(it -> (IVaneProxyServerInfo) new VelocityCompatServerInfo(it))
+            .toList();
+    }
+
     @Override
     public boolean has_permission(UUID uuid, String... permission) {
         final var player = proxy.getPlayer(uuid);